@@ -1,8 +1,11 @@
 package cl.camodev.wosbot.emulator.model;
 
 import cl.camodev.wosbot.emulator.EmulatorType;
+import cl.camodev.wosbot.emulator.InputBackend;
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
 
@@ -13,12 +16,14 @@ public class EmulatorAux
 	private final SimpleStringProperty name;
 	private final SimpleStringProperty path;
 	private final SimpleBooleanProperty active;
+	private final SimpleObjectProperty<InputBackend> inputBackend;
 
-	public EmulatorAux(EmulatorType emulatorType, String path) {
+	public EmulatorAux(EmulatorType emulatorType, String path, InputBackend inputBackend) {
 		this.emulatorType = emulatorType;
 		this.name = new SimpleStringProperty(emulatorType.getDisplayName());
 		this.path = new SimpleStringProperty(path);
 		this.active = new SimpleBooleanProperty(false);
+		this.inputBackend = new SimpleObjectProperty<>(inputBackend);
 	}
 
 	public EmulatorType getEmulatorType() {
@@ -56,4 +61,16 @@ public class EmulatorAux
 	public BooleanProperty activeProperty() {
 		return active;
 	}
+
+	public InputBackend getInputBackend() {
+		return inputBackend.get();
+	}
+
+	public void setInputBackend(InputBackend inputBackend) {
+		this.inputBackend.set(inputBackend);
+	}
+
+	public ObjectProperty<InputBackend> inputBackendProperty() {
+		return inputBackend;
+	}
 }
\ No newline at end of file
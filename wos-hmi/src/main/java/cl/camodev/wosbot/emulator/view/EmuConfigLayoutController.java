@@ -5,6 +5,7 @@ import java.util.HashMap;
 
 import cl.camodev.wosbot.console.enumerable.EnumConfigurationKey;
 import cl.camodev.wosbot.emulator.EmulatorType;
+import cl.camodev.wosbot.emulator.InputBackend;
 import cl.camodev.wosbot.emulator.model.EmulatorAux;
 import cl.camodev.wosbot.serv.impl.ServConfig;
 import cl.camodev.wosbot.serv.impl.ServScheduler;
@@ -13,6 +14,7 @@ import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.RadioButton;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
@@ -36,6 +38,9 @@ public class EmuConfigLayoutController {
 	@FXML
 	private TableColumn<EmulatorAux, String> tableColumnEmulatorPath;
 
+	@FXML
+	private TableColumn<EmulatorAux, InputBackend> tableColumnEmulatorInput;
+
 	@FXML
 	private TableColumn<EmulatorAux, Void> tableColumnEmulatorAction;
 
@@ -59,7 +64,8 @@ public class EmuConfigLayoutController {
 		// Se llena la lista recorriendo los valores del enum
 		for (EmulatorType type : EmulatorType.values()) {
 			String defaultPath = globalConfig.getOrDefault(type.getConfigKey(), "");
-			EmulatorAux emulator = new EmulatorAux(type, defaultPath);
+			InputBackend inputBackend = InputBackend.fromConfig(globalConfig.get(type.getInputBackendConfigKey()), InputBackend.INPUT_COMMAND);
+			EmulatorAux emulator = new EmulatorAux(type, defaultPath, inputBackend);
 			emulator.setActive(type.name().equals(currentEmulator));
 			emulatorList.add(emulator);
 		}
@@ -100,6 +106,31 @@ public class EmuConfigLayoutController {
 			}
 		});
 
+		// Configurar la columna que selecciona el backend de entrada táctil
+		tableColumnEmulatorInput.setCellValueFactory(cellData -> cellData.getValue().inputBackendProperty());
+		tableColumnEmulatorInput.setCellFactory(col -> new TableCell<EmulatorAux, InputBackend>() {
+			private final ComboBox<InputBackend> comboBox = new ComboBox<>(FXCollections.observableArrayList(InputBackend.values()));
+			{
+				comboBox.setMaxWidth(Double.MAX_VALUE);
+				comboBox.setOnAction(event -> {
+					if (getIndex() >= 0 && getIndex() < getTableView().getItems().size() && comboBox.getValue() != null) {
+						getTableView().getItems().get(getIndex()).setInputBackend(comboBox.getValue());
+					}
+				});
+			}
+
+			@Override
+			protected void updateItem(InputBackend item, boolean empty) {
+				super.updateItem(item, empty);
+				if (empty) {
+					setGraphic(null);
+				} else {
+					comboBox.setValue(item);
+					setGraphic(comboBox);
+				}
+			}
+		});
+
 		// Configurar la columna de acción para actualizar la ruta
 		tableColumnEmulatorAction.setCellFactory(col -> new TableCell<EmulatorAux, Void>() {
 			private final Button btn = new Button("...");
@@ -166,6 +197,7 @@ public class EmuConfigLayoutController {
 		// Guarda la configuración usando la clave definida en cada valor del enum
 		for (EmulatorAux emulator : emulatorList) {
 			ServScheduler.getServices().saveEmulatorPath(emulator.getEmulatorType().getConfigKey(), emulator.getPath());
+			ServScheduler.getServices().saveEmulatorPath(emulator.getEmulatorType().getInputBackendConfigKey(), emulator.getInputBackend().name());
 		}
 
 		ServScheduler.getServices().saveEmulatorPath(EnumConfigurationKey.MAX_IDLE_TIME_INT.name(), maxIdleTime);
@@ -8,10 +8,23 @@ public enum EnumConfigurationKey {
 	MUMU_PATH_STRING("", String.class),
 	MEMU_PATH_STRING("", String.class),
 	LDPLAYER_PATH_STRING("", String.class),
+	MUMU_INPUT_BACKEND_STRING("INPUT_COMMAND", String.class),
+	MEMU_INPUT_BACKEND_STRING("INPUT_COMMAND", String.class),
+	LDPLAYER_INPUT_BACKEND_STRING("INPUT_COMMAND", String.class),
 	CURRENT_EMULATOR_STRING("", String.class),
 	
 	MAX_RUNNING_EMULATORS_INT("1", Integer.class),
 	MAX_IDLE_TIME_INT("1", Integer.class),
+	ADB_BREAKER_FAILURES_INT("3", Integer.class),
+	ADB_BREAKER_OPEN_TIME_MS_INT("5000", Integer.class),
+	ADB_BACKOFF_BASE_MS_INT("500", Integer.class),
+	ADB_BACKOFF_MAX_MS_INT("8000", Integer.class),
+	ADB_GLOBAL_RESTART_DEVICES_INT("2", Integer.class),
+	IMAGE_PYRAMID_MATCHING_BOOL("false", Boolean.class),
+	IMAGE_PREFILTER_BOOL("true", Boolean.class),
+	IMAGE_PREFILTER_VALIDATION_BOOL("false", Boolean.class),
+	IMAGE_MATCH_MEMO_SIZE_INT("64", Integer.class),
+	OCR_ENGINE_POOL_SIZE_INT("3", Integer.class),
 	
 	BOOL_NOMADIC_MERCHANT("false", Boolean.class), 
 	BOOL_NOMADIC_MERCHANT_VIP_POINTS("false", Boolean.class), 
@@ -0,0 +1,8 @@
+package cl.camodev.wosbot.console.enumerable;
+
+/**
+ * Screens the game can be on, as told apart by the screen classifier.
+ */
+public enum EnumScreenState {
+	HOME, WORLD, RECONNECT, POPUP, LOADING, UNKNOWN;
+}
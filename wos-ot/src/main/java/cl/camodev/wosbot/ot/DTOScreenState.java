@@ -0,0 +1,42 @@
+package cl.camodev.wosbot.ot;
+
+import cl.camodev.wosbot.console.enumerable.EnumScreenState;
+
+/**
+ * Result of classifying a frame: the most likely screen, how sure the classifier is, and where the anchor
+ * that identified it was found.
+ */
+public class DTOScreenState {
+	private final EnumScreenState state;
+	private final double confidence;
+	private final DTOPoint anchorPoint;
+
+	public DTOScreenState(EnumScreenState state, double confidence, DTOPoint anchorPoint) {
+		this.state = state;
+		this.confidence = confidence;
+		this.anchorPoint = anchorPoint;
+	}
+
+	public EnumScreenState getState() {
+		return state;
+	}
+
+	/**
+	 * @return confidence between 0 and 1
+	 */
+	public double getConfidence() {
+		return confidence;
+	}
+
+	/**
+	 * @return center of the anchor template for HOME, WORLD, RECONNECT and POPUP, null otherwise
+	 */
+	public DTOPoint getAnchorPoint() {
+		return anchorPoint;
+	}
+
+	@Override
+	public String toString() {
+		return state + " (" + Math.round(confidence * 100) + "%)";
+	}
+}
@@ -0,0 +1,22 @@
+package cl.camodev.wosbot.ot;
+
+import cl.camodev.wosbot.console.enumerable.EnumTemplates;
+
+/**
+ * Result of a search over several templates, remembering which template it belongs to.
+ */
+public class DTOTemplateSearchResult extends DTOImageSearchResult {
+	private final EnumTemplates template;
+
+	public DTOTemplateSearchResult(EnumTemplates template, DTOImageSearchResult result) {
+		super(result.isFound(), result.getPoint(), result.getMatchPercentage());
+		this.template = template;
+	}
+
+	/**
+	 * @return the searched template, null for the empty result of a search where nothing was found
+	 */
+	public EnumTemplates getTemplate() {
+		return template;
+	}
+}
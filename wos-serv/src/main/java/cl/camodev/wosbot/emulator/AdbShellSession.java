@@ -0,0 +1,174 @@
+package cl.camodev.wosbot.emulator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Long-lived interactive {@code adb shell} channel for a single device.
+ * <p>
+ * Commands are written line by line to the stdin of one {@code adb -s <serial> shell} process, so
+ * each input event avoids opening a new ADB connection. Commands can be pipelined with
+ * {@link #send(String)} or acknowledged with {@link #sendAndAwait(String, long)}, which appends an
+ * {@code echo} marker and waits until the shell prints it back.
+ * <p>
+ * A session whose process died is reported by {@link #isAlive()} and must be replaced by the caller.
+ */
+public class AdbShellSession implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(AdbShellSession.class);
+	private static final String ACK_PREFIX = "__WOSBOT_ACK_";
+	private static final Set<AdbShellSession> OPEN_SESSIONS = ConcurrentHashMap.newKeySet();
+
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> OPEN_SESSIONS.forEach(AdbShellSession::close)));
+	}
+
+	private final String serial;
+	private final Process process;
+	private final BufferedWriter writer;
+	private final AtomicLong ackSequence = new AtomicLong();
+	private final ConcurrentHashMap<Long, CompletableFuture<Void>> pendingAcks = new ConcurrentHashMap<>();
+	private volatile boolean alive = true;
+
+	private AdbShellSession(String serial, Process process) {
+		this.serial = serial;
+		this.process = process;
+		this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+		Thread readerThread = new Thread(this::readOutput, "adb-shell-" + serial);
+		readerThread.setDaemon(true);
+		readerThread.start();
+	}
+
+	/**
+	 * Starts a new interactive shell on the given device.
+	 * @param adbPath Path to the ADB executable
+	 * @param serial Device serial
+	 * @return the opened session
+	 * @throws IOException if the adb process could not be started
+	 */
+	public static AdbShellSession open(String adbPath, String serial) throws IOException {
+		ProcessBuilder pb = new ProcessBuilder(adbPath, "-s", serial, "shell");
+		pb.directory(new File(adbPath).getParentFile());
+		pb.redirectErrorStream(true);
+		AdbShellSession session = new AdbShellSession(serial, pb.start());
+		OPEN_SESSIONS.add(session);
+		logger.info("Persistent shell session opened for {}", serial);
+		return session;
+	}
+
+	/**
+	 * Writes a command without waiting for it to run. Consecutive calls are pipelined.
+	 * @param command Shell command, without line terminator
+	 * @throws IOException if the session is closed or the pipe is broken
+	 */
+	public synchronized void send(String command) throws IOException {
+		if (!isAlive()) {
+			throw new IOException("Shell session for " + serial + " is closed");
+		}
+		try {
+			writer.write(command);
+			writer.write('\n');
+			writer.flush();
+		} catch (IOException e) {
+			markDead();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes a command and waits until the shell has finished running it.
+	 * @param command Shell command, without line terminator
+	 * @param timeoutMs Maximum time to wait for the acknowledgement
+	 * @throws IOException if the command could not be written; it did not reach the device
+	 * @throws TimeoutException if the command was written but no acknowledgement arrived, because time
+	 *         ran out or the session closed first; the command may still have run
+	 * @throws InterruptedException if the thread was interrupted while waiting; the command was written
+	 */
+	public void sendAndAwait(String command, long timeoutMs) throws IOException, TimeoutException, InterruptedException {
+		long id = ackSequence.incrementAndGet();
+		CompletableFuture<Void> ack = new CompletableFuture<>();
+		pendingAcks.put(id, ack);
+		try {
+			send(command + "; echo " + ACK_PREFIX + id);
+			ack.get(timeoutMs, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			TimeoutException closed = new TimeoutException("Shell session for " + serial + " closed before acknowledgement");
+			closed.initCause(e.getCause());
+			throw closed;
+		} finally {
+			pendingAcks.remove(id);
+		}
+	}
+
+	public boolean isAlive() {
+		return alive && process.isAlive();
+	}
+
+	public String getSerial() {
+		return serial;
+	}
+
+	private void readOutput() {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.startsWith(ACK_PREFIX)) {
+					try {
+						CompletableFuture<Void> ack = pendingAcks.get(Long.parseLong(line.substring(ACK_PREFIX.length())));
+						if (ack != null) {
+							ack.complete(null);
+						}
+					} catch (NumberFormatException e) {
+						logger.debug("Unexpected acknowledgement line from {}: {}", serial, line);
+					}
+				} else if (!line.isEmpty()) {
+					logger.trace("Shell output from {}: {}", serial, line);
+				}
+			}
+		} catch (IOException e) {
+			logger.debug("Shell session output for {} closed: {}", serial, e.getMessage());
+		} finally {
+			markDead();
+		}
+	}
+
+	private void markDead() {
+		if (alive) {
+			alive = false;
+			logger.info("Persistent shell session for {} terminated", serial);
+		}
+		IOException closed = new IOException("Shell session closed");
+		pendingAcks.values().forEach(ack -> ack.completeExceptionally(closed));
+	}
+
+	@Override
+	public void close() {
+		OPEN_SESSIONS.remove(this);
+		if (isAlive()) {
+			try {
+				send("exit");
+			} catch (IOException e) {
+				// Already broken, destroy below
+			}
+		}
+		markDead();
+		process.destroy();
+	}
+}
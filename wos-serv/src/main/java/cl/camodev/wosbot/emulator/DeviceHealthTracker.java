@@ -0,0 +1,169 @@
+package cl.camodev.wosbot.emulator;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-device circuit breakers for ADB actions.
+ * <p>
+ * Every device starts {@link State#CLOSED}. After {@code failureThreshold} consecutive failures its
+ * breaker opens: callers back off for the open time, then a single half-open trial decides whether
+ * the breaker closes again or reopens with twice the open time. The tracker also decides when a global
+ * bridge restart is justified, which is only when several tracked devices are open at the same time.
+ */
+public class DeviceHealthTracker {
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private static final Logger logger = LoggerFactory.getLogger(DeviceHealthTracker.class);
+	private static final long MAX_OPEN_TIME_MS = 60000;
+	private static final long GLOBAL_RESTART_COOLDOWN_MS = 60000;
+
+	private final ConcurrentHashMap<String, DeviceHealth> devices = new ConcurrentHashMap<>();
+	private volatile int failureThreshold = 3;
+	private volatile long openTimeMs = 5000;
+	private volatile long backoffBaseMs = 500;
+	private volatile long backoffMaxMs = 8000;
+	private volatile int globalRestartDevices = 2;
+	private long lastGlobalRestart = 0;
+
+	/**
+	 * Applies new timings. Breakers already open keep their current deadline.
+	 * @param failureThreshold Consecutive failures that open a breaker
+	 * @param openTimeMs Initial time a breaker stays open
+	 * @param backoffBaseMs First retry delay
+	 * @param backoffMaxMs Upper bound for retry delays
+	 * @param globalRestartDevices Devices that must be open together before restarting the bridge
+	 */
+	public void configure(int failureThreshold, long openTimeMs, long backoffBaseMs, long backoffMaxMs, int globalRestartDevices) {
+		this.failureThreshold = Math.max(1, failureThreshold);
+		this.openTimeMs = Math.max(0, openTimeMs);
+		this.backoffBaseMs = Math.max(0, backoffBaseMs);
+		this.backoffMaxMs = Math.max(this.backoffBaseMs, backoffMaxMs);
+		this.globalRestartDevices = Math.max(1, globalRestartDevices);
+	}
+
+	public DeviceHealth get(String serial) {
+		return devices.computeIfAbsent(serial, DeviceHealth::new);
+	}
+
+	/**
+	 * Exponential backoff with jitter: a random delay between half and all of
+	 * {@code base * 2^(attempt - 1)}, capped at the configured maximum.
+	 * @param attempt 1-based attempt number
+	 * @return milliseconds to wait before the next attempt
+	 */
+	public long backoffMillis(int attempt) {
+		long delay = backoffBaseMs << Math.min(Math.max(attempt - 1, 0), 16);
+		delay = Math.min(delay, backoffMaxMs);
+		return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+	}
+
+	/**
+	 * Returns true, at most once per cooldown, when enough devices are failing together that the
+	 * problem is more likely the ADB server than the devices. With fewer tracked devices than the
+	 * configured amount, all of them must be open.
+	 */
+	public synchronized boolean shouldRestartBridge() {
+		long open = devices.values().stream().filter(device -> device.getState() != State.CLOSED).count();
+		int required = Math.min(globalRestartDevices, devices.size());
+		long now = System.currentTimeMillis();
+		if (required > 0 && open >= required && now - lastGlobalRestart > GLOBAL_RESTART_COOLDOWN_MS) {
+			lastGlobalRestart = now;
+			logger.warn("{} of {} devices are failing, a global ADB restart is required", open, devices.size());
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Circuit breaker of a single device.
+	 */
+	public class DeviceHealth {
+		private final String serial;
+		private State state = State.CLOSED;
+		private int consecutiveFailures = 0;
+		private long currentOpenTimeMs = -1;
+		private long openUntil = 0;
+		// Thread running the half-open trial, null when none is in flight
+		private Thread trialThread = null;
+
+		private DeviceHealth(String serial) {
+			this.serial = serial;
+		}
+
+		/**
+		 * Asks for permission to run an action.
+		 * @return 0 if the action may run now, otherwise milliseconds to wait before asking again
+		 */
+		public synchronized long acquire() {
+			if (state == State.CLOSED) {
+				return 0;
+			}
+			long now = System.currentTimeMillis();
+			if (state == State.OPEN) {
+				if (now < openUntil) {
+					return openUntil - now;
+				}
+				state = State.HALF_OPEN;
+				logger.info("Circuit for {} is half-open, trying one action", serial);
+			}
+			if (trialThread != null) {
+				return Math.max(1, backoffBaseMs);
+			}
+			trialThread = Thread.currentThread();
+			return 0;
+		}
+
+		/**
+		 * Gives back the half-open trial taken by the calling thread when its action ended without
+		 * recording a success or a failure, for instance when it was interrupted. Without this the
+		 * breaker would wait forever for an outcome that never comes.
+		 */
+		public synchronized void release() {
+			if (trialThread == Thread.currentThread()) {
+				trialThread = null;
+			}
+		}
+
+		public synchronized void recordSuccess() {
+			if (state != State.CLOSED) {
+				logger.info("Circuit for {} closed", serial);
+			}
+			state = State.CLOSED;
+			consecutiveFailures = 0;
+			currentOpenTimeMs = -1;
+			trialThread = null;
+		}
+
+		/**
+		 * Records a failed action.
+		 * @return true if this failure opened the breaker
+		 */
+		public synchronized boolean recordFailure() {
+			consecutiveFailures++;
+			trialThread = null;
+			if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+				currentOpenTimeMs = currentOpenTimeMs < 0 ? openTimeMs : Math.min(currentOpenTimeMs * 2, MAX_OPEN_TIME_MS);
+				openUntil = System.currentTimeMillis() + currentOpenTimeMs;
+				state = State.OPEN;
+				logger.warn("Circuit for {} opened for {} ms after {} consecutive failures", serial, currentOpenTimeMs, consecutiveFailures);
+				return true;
+			}
+			return false;
+		}
+
+		public synchronized State getState() {
+			return state;
+		}
+
+		public String getSerial() {
+			return serial;
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package cl.camodev.wosbot.emulator;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.android.ddmlib.AndroidDebugBridge;
+import com.android.ddmlib.IDevice;
+
+/**
+ * Serial to {@link IDevice} map kept up to date by ddmlib device change events.
+ * <p>
+ * Lookups never block or scan the bridge. Serials that have been requested at least once are
+ * watched: when such a device disappears or goes offline, the registry reconnects it with
+ * {@code adb connect} on its own thread, so task threads only wait on {@link #awaitOnline(String)}.
+ */
+public class DeviceRegistry implements AndroidDebugBridge.IDeviceChangeListener {
+
+	private static final Logger logger = LoggerFactory.getLogger(DeviceRegistry.class);
+	private static final long RECONNECT_DELAY_MS = 1000;
+	private static final int MAX_RECONNECT_ATTEMPTS = 5;
+
+	private final Predicate<String> connector;
+	private final ConcurrentHashMap<String, IDevice> devices = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, CompletableFuture<IDevice>> onlineWaiters = new ConcurrentHashMap<>();
+	private final Set<String> watchedSerials = ConcurrentHashMap.newKeySet();
+	private final Set<String> reconnecting = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService reconnectExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "adb-device-reconnect");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * @param connector Connects a serial through {@code adb connect}, returning true on success
+	 */
+	public DeviceRegistry(Predicate<String> connector) {
+		this.connector = connector;
+	}
+
+	/**
+	 * Subscribes to device events and loads the devices the bridge already knows about.
+	 * @param bridge Current bridge, may be null if it is not created yet
+	 */
+	public void attach(AndroidDebugBridge bridge) {
+		AndroidDebugBridge.removeDeviceChangeListener(this);
+		AndroidDebugBridge.addDeviceChangeListener(this);
+		if (bridge != null) {
+			for (IDevice device : bridge.getDevices()) {
+				deviceConnected(device);
+			}
+		}
+	}
+
+	/**
+	 * Forgets every known device, typically before the bridge is recreated. Pending waiters stay
+	 * registered and complete once the new bridge reports the device online.
+	 */
+	public void clear() {
+		devices.clear();
+	}
+
+	/**
+	 * Non-blocking lookup. The device may be offline.
+	 * @param serial Device serial
+	 * @return the device if the bridge reported it
+	 */
+	public Optional<IDevice> find(String serial) {
+		watchedSerials.add(serial);
+		return Optional.ofNullable(devices.get(serial));
+	}
+
+	/**
+	 * Returns a future completed as soon as the device is online, starting a background
+	 * reconnect if it is not.
+	 * @param serial Device serial
+	 * @return future with the online device
+	 */
+	public CompletableFuture<IDevice> awaitOnline(String serial) {
+		watchedSerials.add(serial);
+		IDevice device = devices.get(serial);
+		if (device != null && device.isOnline()) {
+			return CompletableFuture.completedFuture(device);
+		}
+		CompletableFuture<IDevice> waiter = onlineWaiters.computeIfAbsent(serial, s -> new CompletableFuture<>());
+		// The device may have come online between the check and the registration
+		device = devices.get(serial);
+		if (device != null && device.isOnline()) {
+			completeWaiter(device);
+		} else {
+			scheduleReconnect(serial, 1);
+		}
+		return waiter;
+	}
+
+	/**
+	 * Unsubscribes from device events and stops background reconnects.
+	 */
+	public void close() {
+		AndroidDebugBridge.removeDeviceChangeListener(this);
+		reconnectExecutor.shutdownNow();
+	}
+
+	@Override
+	public void deviceConnected(IDevice device) {
+		devices.put(device.getSerialNumber(), device);
+		logger.debug("Device connected: {} ({})", device.getSerialNumber(), device.getState());
+		if (device.isOnline()) {
+			completeWaiter(device);
+		}
+	}
+
+	@Override
+	public void deviceDisconnected(IDevice device) {
+		String serial = device.getSerialNumber();
+		devices.remove(serial, device);
+		logger.info("Device disconnected: {}", serial);
+		if (watchedSerials.contains(serial)) {
+			scheduleReconnect(serial, 1);
+		}
+	}
+
+	@Override
+	public void deviceChanged(IDevice device, int changeMask) {
+		if ((changeMask & IDevice.CHANGE_STATE) == 0) {
+			return;
+		}
+		String serial = device.getSerialNumber();
+		devices.put(serial, device);
+		if (device.isOnline()) {
+			completeWaiter(device);
+		} else if (watchedSerials.contains(serial)) {
+			logger.info("Device {} changed to state {}", serial, device.getState());
+			scheduleReconnect(serial, 1);
+		}
+	}
+
+	private void completeWaiter(IDevice device) {
+		CompletableFuture<IDevice> waiter = onlineWaiters.remove(device.getSerialNumber());
+		if (waiter != null) {
+			waiter.complete(device);
+		}
+	}
+
+	private void scheduleReconnect(String serial, int attempt) {
+		if (attempt == 1 && !reconnecting.add(serial)) {
+			return;
+		}
+		try {
+			reconnectExecutor.schedule(() -> reconnect(serial, attempt), attempt == 1 ? 0 : RECONNECT_DELAY_MS * attempt, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			reconnecting.remove(serial);
+		}
+	}
+
+	private void reconnect(String serial, int attempt) {
+		IDevice device = devices.get(serial);
+		if (device != null && device.isOnline()) {
+			reconnecting.remove(serial);
+			completeWaiter(device);
+			return;
+		}
+		logger.info("Reconnecting device {} (attempt {}/{})", serial, attempt, MAX_RECONNECT_ATTEMPTS);
+		connector.test(serial);
+		if (attempt < MAX_RECONNECT_ATTEMPTS) {
+			scheduleReconnect(serial, attempt + 1);
+		} else {
+			reconnecting.remove(serial);
+			logger.warn("Device {} still not online after {} reconnect attempts", serial, MAX_RECONNECT_ATTEMPTS);
+		}
+	}
+}
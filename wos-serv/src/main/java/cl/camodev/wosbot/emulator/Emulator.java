@@ -1,26 +1,36 @@
 package cl.camodev.wosbot.emulator;
 
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.BufferedReader;
-import java.util.Arrays;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
 
-import javax.imageio.ImageIO;
-
+import cl.camodev.utiles.Frame;
+import cl.camodev.utiles.OcrProfile;
+import cl.camodev.utiles.OcrService;
+import cl.camodev.utiles.PixelConverter;
 import cl.camodev.wosbot.ex.ADBConnectionException;
 import com.android.ddmlib.*;
 
 import cl.camodev.wosbot.ot.DTOPoint;
-import net.sourceforge.tess4j.Tesseract;
 import net.sourceforge.tess4j.TesseractException;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,20 +50,66 @@ import org.slf4j.LoggerFactory;
  */
 public abstract class Emulator {
 	protected static final int MAX_RETRIES = 10;
-	protected static final int RETRY_DELAY_MS = 3000;
 	protected static final int INIT_LOOPS = 10;
 	protected static final int INIT_DELAY_MS = 500;
 	private static final Logger logger = LoggerFactory.getLogger(Emulator.class);
 	protected String consolePath;
 	protected AndroidDebugBridge bridge = null;
 
-	private final ThreadLocal<BufferedImage> reusableImage = new ThreadLocal<>();
+	private static final int MAX_RECYCLED_FRAMES = 8;
+	private static final long SHELL_ACK_TIMEOUT_MS = 5000;
+	private static final long DEVICE_CONNECT_TIMEOUT_MS = 5000;
+	private static final long FOREGROUND_CACHE_TTL_MS = 2000;
+
+	private final ConcurrentLinkedQueue<Mat> recycledFrameMats = new ConcurrentLinkedQueue<>();
+	private final ConcurrentHashMap<String, AdbShellSession> shellSessions = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Optional<TouchDevice>> touchDevices = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, ForegroundApp> foregroundApps = new ConcurrentHashMap<>();
+	private volatile InputBackend inputBackend = InputBackend.INPUT_COMMAND;
+	private final EmulatorStateMonitor stateMonitor = new EmulatorStateMonitor(this);
+	private final DeviceRegistry deviceRegistry = new DeviceRegistry(this::connectToDeviceBySerial);
+	private final DeviceHealthTracker healthTracker = new DeviceHealthTracker();
 
 	public Emulator(String consolePath) {
 		this.consolePath = consolePath;
 		initializeBridge();
 	}
 
+	/**
+	 * Cached running state of the instances, refreshed in bulk in the background.
+	 */
+	public EmulatorStateMonitor getStateMonitor() {
+		return stateMonitor;
+	}
+
+	/**
+	 * Devices reported by the bridge, kept up to date by ddmlib events.
+	 */
+	public DeviceRegistry getDeviceRegistry() {
+		return deviceRegistry;
+	}
+
+	/**
+	 * Per-device circuit breakers used by {@link #withRetries(String, Function, String)}.
+	 */
+	public DeviceHealthTracker getHealthTracker() {
+		return healthTracker;
+	}
+
+	/**
+	 * Selects how taps are injected. {@link InputBackend#SENDEVENT} falls back to {@code input tap}
+	 * on devices without a writable touchscreen node.
+	 * @param inputBackend Tap injection backend
+	 */
+	public void setInputBackend(InputBackend inputBackend) {
+		this.inputBackend = inputBackend == null ? InputBackend.INPUT_COMMAND : inputBackend;
+		touchDevices.clear();
+	}
+
+	public InputBackend getInputBackend() {
+		return inputBackend;
+	}
+
 	/**
 	 * Gets the ADB executable path from the project's execution directory.
 	 * @return Path to the ADB executable
@@ -91,6 +147,7 @@ public abstract class Emulator {
 			String adbPath = getProjectAdbPath();
 			logger.info("Initializing ADB bridge with path: {}", adbPath);
 			bridge = AndroidDebugBridge.createBridge(adbPath, true, 5000, TimeUnit.MILLISECONDS);
+			deviceRegistry.attach(bridge);
 		}
 	}
 
@@ -124,6 +181,42 @@ public abstract class Emulator {
 	 */
 	public abstract boolean isRunning(String emulatorNumber);
 
+	/**
+	 * Checks the running state of several instances. Subclasses whose console can list all
+	 * instances in a single call should override this to avoid one process per instance.
+	 * @param emulatorNumbers Emulator identifiers
+	 * @return running state for each requested identifier
+	 */
+	protected Map<String, Boolean> queryRunningStates(Collection<String> emulatorNumbers) {
+		Map<String, Boolean> states = new HashMap<>();
+		for (String emulatorNumber : emulatorNumbers) {
+			states.put(emulatorNumber, isRunning(emulatorNumber));
+		}
+		return states;
+	}
+
+	/**
+	 * Runs an emulator console command and returns its standard output.
+	 * @param command Command and arguments
+	 * @return Output lines
+	 * @throws IOException if the process could not be started or read
+	 * @throws InterruptedException if interrupted while waiting for the process
+	 */
+	protected List<String> readConsoleOutput(String... command) throws IOException, InterruptedException {
+		ProcessBuilder pb = new ProcessBuilder(command);
+		pb.directory(new File(consolePath).getParentFile());
+		Process process = pb.start();
+		List<String> lines = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		process.waitFor();
+		return lines;
+	}
+
 	/**
 	 * Waits for the ddmlib bridge to be ready.
 	 * @throws InterruptedException if interrupted while waiting
@@ -138,42 +231,29 @@ public abstract class Emulator {
 
 	/**
 	 * Finds the IDevice instance for the given emulator number.
+	 * <p>
+	 * Known devices are returned straight from the {@link DeviceRegistry}. Otherwise the registry
+	 * reconnects the device in the background and this call waits for it to come online.
 	 * @param emulatorNumber Emulator identifier
 	 * @return IDevice instance or null if not found
 	 * @throws InterruptedException if interrupted while waiting
 	 */
 	protected IDevice findDevice(String emulatorNumber) throws InterruptedException {
-		waitForBridge();
 		String serial = getDeviceSerial(emulatorNumber);
-
-		// 1. First search in already connected devices (quick search)
-		for (IDevice device : bridge.getDevices()) {
-			if (serial.equals(device.getSerialNumber())) {
-				logger.debug("Device found in cache: {}", serial);
-				return device;
-			}
+		Optional<IDevice> known = deviceRegistry.find(serial);
+		if (known.isPresent()) {
+			return known.get();
 		}
 
-		// 2. If not found, try direct connection
-		logger.info("Device not found in cache, connecting directly: " + serial);
-		if (connectToDeviceBySerial(serial)) {
-			// 3. Force bridge update and search again
-			//forceDeviceDiscovery();
-
-			// 4. Search for the newly connected device
-			for (int i = 0; i < 5; i++) {
-				for (IDevice device : bridge.getDevices()) {
-					if (serial.equals(device.getSerialNumber())) {
-                        logger.info("Device connected and found: {}", serial);
-						return device;
-					}
-				}
-				Thread.sleep(1000); // Wait 1 second between attempts
-			}
+		logger.info("Device not registered, waiting for connection: {}", serial);
+		try {
+			IDevice device = deviceRegistry.awaitOnline(serial).get(DEVICE_CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			logger.info("Device connected and found: {}", serial);
+			return device;
+		} catch (TimeoutException | ExecutionException e) {
+			logger.warn("Could not connect to device: {}", serial);
+			return null;
 		}
-
-		logger.warn("Could not connect to device: {}", serial);
-		return null;
 	}
 
 	/**
@@ -213,6 +293,10 @@ public abstract class Emulator {
 
 	/**
 	 * Executes an action with retries for the given emulator.
+	 * <p>
+	 * Failures are tracked per device by a circuit breaker: retries back off exponentially with
+	 * jitter, a device whose breaker opens is reconnected on its own with {@code adb disconnect/connect},
+	 * and the shared bridge is only restarted when several devices are failing at the same time.
 	 * @param emulatorNumber Emulator identifier
 	 * @param action Function to execute with IDevice
 	 * @param actionName Name for logging
@@ -220,146 +304,164 @@ public abstract class Emulator {
 	 * @return Result of the action
 	 */
 	protected <T> T withRetries(String emulatorNumber, Function<IDevice, T> action, String actionName) {
-		if (!isRunning(emulatorNumber)){
+		if (!stateMonitor.isRunning(emulatorNumber)){
 			logger.error("Emulator {} is not running, cannot perform action {}", emulatorNumber, actionName);
 			throw new ADBConnectionException("Emulator " + emulatorNumber + " is not running, cannot perform action " + actionName);
 		}
 
+		String serial = getDeviceSerial(emulatorNumber);
+		DeviceHealthTracker.DeviceHealth health = healthTracker.get(serial);
+
 		for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+			// True between acquire() and the outcome being recorded
+			boolean acquired = false;
 			try {
-				// Use optimized findDevice that includes automatic connection
-				IDevice device = findDevice(emulatorNumber);
-				if (device == null) {
-					logger.error("Device not found for {}: {}", actionName, emulatorNumber);
-
-					// Only restart ADB as last resort after several attempts
-					if (attempt >= MAX_RETRIES / 2) {
-						logger.info("Attempting ADB restart as last resort (attempt {})", attempt);
-						restartAdb();
-					}
-
-					Thread.sleep(RETRY_DELAY_MS / 2); // Reduced wait
-					continue;
+				// Waiting for an open circuit is not an attempt: every attempt must reach the device
+				long wait;
+				while ((wait = health.acquire()) > 0) {
+					logger.debug("Circuit for {} is {}, waiting {} ms before {}", serial, health.getState(), wait, actionName);
+					Thread.sleep(wait);
 				}
+				acquired = true;
 
-				// Check that the device is online before executing the action
-				if (!device.isOnline()) {
-                    logger.warn("Device found but not online, waiting... (attempt {})", attempt);
-					Thread.sleep(2000);
-					continue;
+				IDevice device = findDevice(emulatorNumber);
+				if (device == null || !device.isOnline()) {
+					logger.warn("Device {} not available for {} (attempt {})", serial, actionName, attempt);
+					acquired = false;
+					onDeviceFailure(health);
+				} else {
+					T result = action.apply(device);
+					acquired = false;
+					health.recordSuccess();
+					return result;
 				}
-
-				// Execute the action
-				return action.apply(device);
-
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ADBConnectionException("Interrupted while performing " + actionName + " on " + emulatorNumber);
 			} catch (Exception e) {
-                logger.warn("Attempt {} of {} failed: {}", attempt, actionName, e.getMessage());
-
-				// Only restart ADB in extreme cases and after several failures
-				if (attempt >= MAX_RETRIES - 2) {
-                    logger.warn("Multiple failures, attempting ADB restart (attempt {})", attempt);
-					try {
-						restartAdb();
-						Thread.sleep(RETRY_DELAY_MS);
-					} catch (InterruptedException ie) {
-						Thread.currentThread().interrupt();
-					}
-				} else {
-					// Shorter wait between normal retries
-					try {
-						Thread.sleep(RETRY_DELAY_MS / 2);
-					} catch (InterruptedException ie) {
-						Thread.currentThread().interrupt();
-					}
+				if (e.getCause() instanceof InterruptedException) {
+					// Interrupted inside the action: stop, the device did nothing wrong
+					Thread.currentThread().interrupt();
+					throw new ADBConnectionException("Interrupted while performing " + actionName + " on " + emulatorNumber);
+				}
+				logger.warn("Attempt {} of {} failed: {}", attempt, actionName, e.getMessage());
+				acquired = false;
+				onDeviceFailure(health);
+			} finally {
+				// Interrupted or failed with an Error: no outcome was recorded, free a half-open trial
+				if (acquired) {
+					health.release();
 				}
 			}
+
+			try {
+				Thread.sleep(healthTracker.backoffMillis(attempt));
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new ADBConnectionException("Interrupted while performing " + actionName + " on " + emulatorNumber);
+			}
 		}
 
-		// Last resort: restart ADB and try one final time after all retries are exhausted
-		logger.warn("All {} attempts failed for {} on {}. Attempting final ADB restart and retry...",
-					MAX_RETRIES, actionName, emulatorNumber);
-		try {
-			restartAdb();
-			Thread.sleep(RETRY_DELAY_MS);
-
-			// Final attempt after ADB restart
-			IDevice device = findDevice(emulatorNumber);
-			if (device != null && device.isOnline()) {
-				logger.info("Final attempt after ADB restart for {} on {}", actionName, emulatorNumber);
-				return action.apply(device);
+		logger.error("All {} attempts failed for {} on {}", MAX_RETRIES, actionName, emulatorNumber);
+		throw new ADBConnectionException("All attempts failed for " + actionName + " on " + emulatorNumber);
+	}
+
+	/**
+	 * Records a failure and escalates: a device whose circuit opens is reconnected alone, and the
+	 * bridge is restarted only when the tracker sees several devices failing together.
+	 */
+	private void onDeviceFailure(DeviceHealthTracker.DeviceHealth health) {
+		if (health.recordFailure()) {
+			if (healthTracker.shouldRestartBridge()) {
+				restartAdb();
+			} else {
+				reconnectDevice(health.getSerial());
 			}
-		} catch (Exception e) {
-			logger.error("Final attempt after ADB restart also failed for {} on {}: {}",
-						actionName, emulatorNumber, e.getMessage());
 		}
+	}
 
-        logger.error("All attempts including final ADB restart failed for {} on {}", actionName, emulatorNumber);
-		throw new ADBConnectionException("All attempts including final ADB restart failed for " + actionName + " on " + emulatorNumber);
+	/**
+	 * Drops and re-establishes the ADB connection of a single device without touching the bridge.
+	 * @param serial Device serial
+	 */
+	protected void reconnectDevice(String serial) {
+		closeShellSession(serial);
+		try {
+			String adbPath = getProjectAdbPath();
+			ProcessBuilder pb = new ProcessBuilder(adbPath, "disconnect", extractAddressFromSerial(serial));
+			pb.directory(new File(adbPath).getParentFile());
+			pb.redirectErrorStream(true);
+			Process process = pb.start();
+			process.getInputStream().transferTo(OutputStream.nullOutputStream());
+			process.waitFor();
+		} catch (IOException e) {
+			logger.warn("Could not disconnect {}: {}", serial, e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		connectToDeviceBySerial(serial);
 	}
 
 	/**
-	 * Converts a RawImage to BufferedImage.
+	 * Converts a RawImage framebuffer into a BGR Mat without any intermediate encoding.
 	 * @param rawImage RawImage from ddmlib
-	 * @param image BufferedImage to fill
+	 * @return BGR Mat owned by the caller
 	 */
-	protected void convertRawImageToBufferedImage(RawImage rawImage, BufferedImage image) {
-		int[] pixels = new int[rawImage.width * rawImage.height];
-		int index = 0;
-
-		for (int y = 0; y < rawImage.height; y++) {
-			for (int x = 0; x < rawImage.width; x++) {
-				int offset = index * rawImage.bpp / 8;
+	protected Mat convertRawImageToMat(RawImage rawImage) {
+		Mat bgr = borrowFrameMat(rawImage.width, rawImage.height);
+		PixelConverter.toBgr(rawImage.data, rawImage.width, rawImage.height, getPixelLayout(rawImage), bgr);
+		return bgr;
+	}
 
-				int r = getColorComponent(rawImage, offset, rawImage.red_offset);
-				int g = getColorComponent(rawImage, offset, rawImage.green_offset);
-				int b = getColorComponent(rawImage, offset, rawImage.blue_offset);
+	/**
+	 * Describes the channel layout reported by the device for the {@link PixelConverter}.
+	 * @param rawImage RawImage from ddmlib
+	 * @return pixel layout
+	 */
+	private PixelConverter.PixelLayout getPixelLayout(RawImage rawImage) {
+		return new PixelConverter.PixelLayout(rawImage.bpp, rawImage.red_offset, rawImage.green_offset, rawImage.blue_offset,
+				rawImage.alpha_offset, rawImage.alpha_length);
+	}
 
-				pixels[index] = (r << 16) | (g << 8) | b; // Sin canal alpha
-				index++;
+	/**
+	 * Takes a BGR Mat of the given size from the recycled frame buffers, or allocates a new one.
+	 */
+	private Mat borrowFrameMat(int width, int height) {
+		Mat mat;
+		while ((mat = recycledFrameMats.poll()) != null) {
+			if (mat.cols() == width && mat.rows() == height && mat.type() == CvType.CV_8UC3) {
+				return mat;
 			}
+			mat.release();
 		}
-
-		image.setRGB(0, 0, rawImage.width, rawImage.height, pixels, 0, rawImage.width);
+		return new Mat(height, width, CvType.CV_8UC3);
 	}
 
 	/**
-	 * Gets a color component from a RawImage.
-	 * @param rawImage RawImage from ddmlib
-	 * @param baseOffset Base offset in image data
-	 * @param bitOffset Bit offset for the color
-	 * @return Color component value
+	 * Returns a frame buffer so the next capture can reuse it instead of allocating.
 	 */
-	protected int getColorComponent(RawImage rawImage, int baseOffset, int bitOffset) {
-		if (bitOffset == -1)
-			return 0;
-		int byteOffset = bitOffset / 8;
-		return rawImage.data[baseOffset + byteOffset] & 0xFF;
+	private void recycleFrameMat(Mat mat) {
+		if (recycledFrameMats.size() >= MAX_RECYCLED_FRAMES) {
+			mat.release();
+		} else {
+			recycledFrameMats.offer(mat);
+		}
 	}
 
 	/**
-	 * Captures a screenshot using ddmlib.
+	 * Captures the framebuffer using ddmlib and converts it straight into a BGR frame.
 	 * @param emulatorNumber Emulator identifier
-	 * @return PNG image bytes
+	 * @return Screen snapshot owned by the caller
 	 */
-	protected byte[] captureScreenshotWithDdmlib(String emulatorNumber) {
+	protected Frame captureFrameWithDdmlib(String emulatorNumber) {
 		return withRetries(emulatorNumber, device -> {
 			try {
 				RawImage rawImage = device.getScreenshot();
 				if (rawImage == null) {
 					throw new RuntimeException("RawImage es null");
 				}
-
-				BufferedImage image = reusableImage.get();
-				if (image == null ||
-						image.getWidth() != rawImage.width ||
-						image.getHeight() != rawImage.height) {
-						image = new BufferedImage(rawImage.width, rawImage.height, BufferedImage.TYPE_INT_RGB);
-					reusableImage.set(image);
-				}
-				convertRawImageToBufferedImage(rawImage, image);
-				ByteArrayOutputStream baos = new ByteArrayOutputStream();
-				ImageIO.write(image, "png", baos);
-				return baos.toByteArray();
+				return Frame.fromMat(convertRawImageToMat(rawImage), this::recycleFrameMat);
 			} catch (Exception e) {
 				throw new RuntimeException("Error capturing screenshot", e);
 			}
@@ -368,6 +470,9 @@ public abstract class Emulator {
 
 	/**
 	 * Simulates a tap event at a random point within the given area.
+	 * <p>
+	 * A retry after a failure resumes the burst at the first tap that was never written, so taps
+	 * pipelined before the failure are not sent twice.
 	 * @param emulatorNumber Emulator identifier
 	 * @param point1 First corner
 	 * @param point2 Second corner
@@ -376,6 +481,8 @@ public abstract class Emulator {
 	 * @return true if successful
 	 */
 	protected boolean tapWithDdmlib(String emulatorNumber, DTOPoint point1, DTOPoint point2, int tapCount, int delayMs) {
+		// Taps already written survive a retry: only the ones never sent are sent again
+		int[] sent = {0};
 		return withRetries(emulatorNumber, device -> {
 			Random random = new Random();
 			int minX = Math.min(point1.getX(), point2.getX());
@@ -383,12 +490,35 @@ public abstract class Emulator {
 			int minY = Math.min(point1.getY(), point2.getY());
 			int maxY = Math.max(point1.getY(), point2.getY());
 
-			for (int i = 1; i <= tapCount; i++) {
+			if (sent[0] == tapCount) {
+				// Every tap went out but the last one was not acknowledged: confirm the device
+				// answers again without repeating a tap that may already have run
+				try {
+					sendInputCommand(device, "true", true);
+				} catch (Exception ex) {
+					throw new RuntimeException(ex);
+				}
+				return Boolean.TRUE;
+			}
+
+			for (int i = sent[0] + 1; i <= tapCount; i++) {
 				int x = minX + random.nextInt(maxX - minX + 1);
 				int y = minY + random.nextInt(maxY - minY + 1);
 
 				try {
-					device.executeShellCommand("input tap " + x + " " + y, new NullOutputReceiver());
+					// Pipeline all taps but the last one, which is acknowledged before returning
+					long start = System.nanoTime();
+					try {
+						sendInputCommand(device, buildTapCommand(device, x, y), i == tapCount);
+					} catch (TimeoutException | InterruptedException ex) {
+						// Written but unconfirmed
+						sent[0] = i;
+						throw ex;
+					}
+					sent[0] = i;
+					if (i == tapCount) {
+						logger.debug("Tap acknowledged after {} ms using {} on emulator {}", (System.nanoTime() - start) / 1_000_000, inputBackend, emulatorNumber);
+					}
                     logger.info("Tap {}/{} sent to ({},{}) on emulator {}", i, tapCount, x, y,emulatorNumber);
 					if (i < tapCount) Thread.sleep(delayMs);
 				} catch (Exception ex) {
@@ -399,6 +529,164 @@ public abstract class Emulator {
 		}, "tapAtRandomPoint x" + tapCount);
 	}
 
+	/**
+	 * Builds the shell command for a tap using the configured input backend.
+	 * @param device Target device
+	 * @param x Screen X in pixels
+	 * @param y Screen Y in pixels
+	 * @return sendevent sequence when available, {@code input tap} otherwise
+	 */
+	private String buildTapCommand(IDevice device, int x, int y) {
+		if (inputBackend == InputBackend.SENDEVENT) {
+			Optional<TouchDevice> touchDevice = getTouchDevice(device);
+			if (touchDevice.isPresent()) {
+				return touchDevice.get().buildTapCommand(x, y);
+			}
+		}
+		return "input tap " + x + " " + y;
+	}
+
+	/**
+	 * Returns the touchscreen node of a device, discovering it once with {@code getevent -p} and probing
+	 * the event size its shell writes.
+	 * An empty result is cached as well so devices without a usable node go straight to {@code input tap}.
+	 * @param device Target device
+	 * @return the writable touch node, or empty if raw events cannot be injected
+	 */
+	private Optional<TouchDevice> getTouchDevice(IDevice device) {
+		String serial = device.getSerialNumber();
+		Optional<TouchDevice> cached = touchDevices.get(serial);
+		if (cached != null) {
+			return cached;
+		}
+
+		Optional<TouchDevice> touchDevice = Optional.empty();
+		try {
+			int[] screenSize = getScreenSize(device);
+			touchDevice = TouchDevice.parse(executeShellForOutput(device, "getevent -p"), screenSize[0], screenSize[1]);
+			if (touchDevice.isPresent()) {
+				String path = touchDevice.get().getPath();
+				if (!executeShellForOutput(device, "test -w " + path + " && echo writable").contains("writable")) {
+					logger.warn("Touch device {} on {} is not writable, using input tap", path, serial);
+					touchDevice = Optional.empty();
+				} else {
+					// Find the struct size the shell writes, so each tap phase is a single printf
+					for (int eventSize : TouchDevice.EVENT_SIZES) {
+						if (executeShellForOutput(device, touchDevice.get().buildProbeCommand(eventSize)).contains(TouchDevice.PROBE_OK)) {
+							touchDevice = Optional.of(touchDevice.get().withEventSize(eventSize));
+							break;
+						}
+					}
+					logger.info("Using raw touch backend on {}: {}", serial, touchDevice.get());
+				}
+			} else {
+				logger.warn("No multi-touch device found on {}, using input tap", serial);
+			}
+		} catch (Exception e) {
+			logger.warn("Could not discover touch device on {}, using input tap: {}", serial, e.getMessage());
+		}
+		touchDevices.put(serial, touchDevice);
+		return touchDevice;
+	}
+
+	/**
+	 * Reads the current screen size with {@code wm size}, preferring the override size when set.
+	 * @return {width, height}
+	 */
+	private int[] getScreenSize(IDevice device) throws Exception {
+		int[] size = { 720, 1280 };
+		for (String line : executeShellForOutput(device, "wm size").split("\\r?\\n")) {
+			int colon = line.indexOf(':');
+			String[] dims = colon < 0 ? new String[0] : line.substring(colon + 1).trim().split("x");
+			if (dims.length == 2) {
+				size[0] = Integer.parseInt(dims[0].trim());
+				size[1] = Integer.parseInt(dims[1].trim());
+				if (line.startsWith("Override")) {
+					break;
+				}
+			}
+		}
+		return size;
+	}
+
+	private String executeShellForOutput(IDevice device, String command) throws Exception {
+		CollectingOutputReceiver receiver = new CollectingOutputReceiver();
+		device.executeShellCommand(command, receiver, 5, TimeUnit.SECONDS);
+		return receiver.getOutput();
+	}
+
+	/**
+	 * Sends an input command through the device's persistent shell session, falling back to a
+	 * one-shot ddmlib shell command only when the command could not be written to the session.
+	 * Once written, the command is never sent again from here.
+	 * @param device Target device
+	 * @param command Shell command to run
+	 * @param awaitAck Whether to wait until the command has finished on the device
+	 * @throws TimeoutException if the session does not acknowledge the command; it may or may not have run
+	 * @throws InterruptedException if interrupted while waiting for the acknowledgement
+	 * @throws Exception if the fallback command fails
+	 */
+	protected void sendInputCommand(IDevice device, String command, boolean awaitAck) throws Exception {
+		AdbShellSession session = getShellSession(device.getSerialNumber());
+		if (session != null) {
+			try {
+				if (awaitAck) {
+					session.sendAndAwait(command, SHELL_ACK_TIMEOUT_MS);
+				} else {
+					session.send(command);
+				}
+				return;
+			} catch (TimeoutException e) {
+				// Nothing confirms the command ran: replace the session and report the stall so the breaker sees it
+				logger.warn("Shell session for {} did not acknowledge '{}', reopening", device.getSerialNumber(), command);
+				closeShellSession(device.getSerialNumber());
+				throw e;
+			} catch (IOException e) {
+				// Only the write can fail with IOException, so the command never reached the shell
+				logger.warn("Shell session for {} failed, falling back to single command: {}", device.getSerialNumber(), e.getMessage());
+				closeShellSession(device.getSerialNumber());
+			}
+		}
+		device.executeShellCommand(command, new NullOutputReceiver());
+	}
+
+	/**
+	 * Returns the live persistent shell session for a device, opening a new one if needed.
+	 * @param serial Device serial
+	 * @return the session, or null if it could not be opened
+	 */
+	private AdbShellSession getShellSession(String serial) {
+		AdbShellSession session = shellSessions.get(serial);
+		if (session != null && session.isAlive()) {
+			return session;
+		}
+		synchronized (shellSessions) {
+			session = shellSessions.get(serial);
+			if (session != null && session.isAlive()) {
+				return session;
+			}
+			if (session != null) {
+				session.close();
+			}
+			try {
+				session = AdbShellSession.open(getProjectAdbPath(), serial);
+				shellSessions.put(serial, session);
+				return session;
+			} catch (IOException e) {
+				logger.warn("Could not open persistent shell session for {}: {}", serial, e.getMessage());
+				shellSessions.remove(serial);
+				return null;
+			}
+		}
+	}
+
+	private void closeShellSession(String serial) {
+		AdbShellSession session = shellSessions.remove(serial);
+		if (session != null) {
+			session.close();
+		}
+	}
+
 	/**
 	 * Restarts the ADB bridge using the project's ADB executable.
 	 */
@@ -409,8 +697,14 @@ public abstract class Emulator {
 
 		String adbPath = getProjectAdbPath();
 		logger.info("Restarting ADB bridge with path: {}", adbPath);
+		deviceRegistry.clear();
 		bridge = AndroidDebugBridge.createBridge(adbPath, true, 5000, TimeUnit.MILLISECONDS);
+		deviceRegistry.attach(bridge);
 		logger.info("ADB restarted successfully");
+
+		// Shell sessions were served by the old adb server
+		shellSessions.keySet().forEach(this::closeShellSession);
+		touchDevices.clear();
 	}
 
 	/**
@@ -423,7 +717,7 @@ public abstract class Emulator {
 		withRetries(emulatorNumber, device -> {
 			try {
 				String command = String.format("input swipe %d %d %d %d", point.getX(), point.getY(), point2.getX(), point2.getY());
-				device.executeShellCommand(command, new NullOutputReceiver());
+				sendInputCommand(device, command, true);
 				logger.info("Swipe executed from ({},{}) to ({},{}) on emulator {}",
 						point.getX(), point.getY(), point2.getX(), point2.getY(), emulatorNumber);
 				return null;
@@ -440,7 +734,8 @@ public abstract class Emulator {
 	public void pressBackButton(String emulatorNumber) {
 		withRetries(emulatorNumber, device -> {
 			try {
-				device.executeShellCommand("input keyevent KEYCODE_BACK", new NullOutputReceiver());
+				sendInputCommand(device, "input keyevent KEYCODE_BACK", true);
+				invalidateForegroundApp(emulatorNumber);
                 logger.info("Back button pressed on emulator {}", emulatorNumber);
 				return null;
 			} catch (Exception e) {
@@ -486,50 +781,68 @@ public abstract class Emulator {
 	}
 
 	/**
-	 * Checks if the package is running in the foreground using dumpsys window windows.
+	 * Checks if the package is running in the foreground.
+	 * <p>
+	 * The foreground package is read with a single filtered {@code dumpsys} query and cached per
+	 * device for {@link #FOREGROUND_CACHE_TTL_MS}; launching an app, pressing back or closing the
+	 * emulator invalidates it.
 	 * @param emulatorNumber Emulator identifier
 	 * @param packageName Package name to check
 	 * @return true if in foreground, false otherwise
 	 */
 	public boolean isPackageRunning(String emulatorNumber, String packageName) {
-		return withRetries(emulatorNumber, device -> {
+		String serial = getDeviceSerial(emulatorNumber);
+		ForegroundApp cached = foregroundApps.get(serial);
+		if (cached != null && System.currentTimeMillis() - cached.timestamp() <= FOREGROUND_CACHE_TTL_MS) {
+			return packageName.equals(cached.packageName());
+		}
+
+		String foreground = withRetries(emulatorNumber, device -> {
 			try {
-				// List of commands to try, in order:
-				List<String> cmds = Arrays.asList(
-						"dumpsys window windows",             // Android ≤ 10
-						"dumpsys window displays",            // Android 11+
-						"dumpsys window",                     // global fallback
-						"dumpsys activity activities"         // search for mResumedActivity
-				);
-				for (String cmd : cmds) {
-					CollectingOutputReceiver recv = new CollectingOutputReceiver();
-					device.executeShellCommand(cmd, recv, 5, TimeUnit.SECONDS);
-					String out = recv.getOutput();
-
-					for (String line : out.split("\\r?\\n")) {
-						line = line.trim();
-						// for the first 3 commands...
-						if ((cmd.contains("window")) &&
-								(line.contains("mCurrentFocus") || line.contains("mFocusedApp")) &&
-								line.contains(packageName + "/")) {
-							logger.trace("✅ Foreground detected with `{}`: {}", cmd, line);
-							return true;
-						}
-						// for dumpsys activity activities...
-						if (cmd.contains("activity") &&
-								line.contains("mResumedActivity") &&
-								line.contains(packageName + "/")) {
-							logger.info("✅ Foreground detected with `{}`: {}", cmd, line);
-							return true;
-						}
-					}
+				String focused = parseForegroundPackage(executeShellForOutput(device,
+						"dumpsys activity activities | grep -E 'mResumedActivity|topResumedActivity'"));
+				if (focused == null) {
+					// Some builds do not expose the resumed activity, the window focus is the next best source
+					focused = parseForegroundPackage(executeShellForOutput(device, "dumpsys window | grep -E 'mCurrentFocus|mFocusedApp'"));
 				}
-				logger.info("App {} is not in foreground on emulator {}", packageName, emulatorNumber);
-				return false;
+				return focused == null ? "" : focused;
 			} catch (Exception e) {
 				throw new RuntimeException("Error checking if package is running: " + packageName, e);
 			}
 		}, "isAppInForeground");
+
+		foregroundApps.put(serial, new ForegroundApp(foreground, System.currentTimeMillis()));
+		if (!packageName.equals(foreground)) {
+			logger.info("App {} is not in foreground on emulator {} (foreground: {})", packageName, emulatorNumber, foreground.isEmpty() ? "none" : foreground);
+			return false;
+		}
+		logger.trace("✅ Foreground detected on emulator {}: {}", emulatorNumber, foreground);
+		return true;
+	}
+
+	/**
+	 * Extracts the package of the first {@code package/activity} component found in dumpsys lines.
+	 * @param output Filtered dumpsys output
+	 * @return package name, or null if no component is present
+	 */
+	private String parseForegroundPackage(String output) {
+		for (String line : output.split("\\r?\\n")) {
+			for (String token : line.trim().split("[\\s{}]+")) {
+				int slash = token.indexOf('/');
+				if (slash > 0 && token.indexOf('.') > 0 && token.indexOf('.') < slash) {
+					return token.substring(0, slash);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Forgets the cached foreground app of an emulator so the next check queries the device.
+	 * @param emulatorNumber Emulator identifier
+	 */
+	public void invalidateForegroundApp(String emulatorNumber) {
+		foregroundApps.remove(getDeviceSerial(emulatorNumber));
 	}
 
 	/**
@@ -541,6 +854,7 @@ public abstract class Emulator {
 		withRetries(emulatorNumber, device -> {
 			try {
 				device.executeShellCommand("monkey -p " + packageName + " -c android.intent.category.LAUNCHER 1", new NullOutputReceiver());
+				invalidateForegroundApp(emulatorNumber);
                 logger.info("Application {} launched on emulator {}", packageName, emulatorNumber);
 				return null;
 			} catch (Exception e) {
@@ -583,30 +897,126 @@ public abstract class Emulator {
 	 * @throws TesseractException if OCR fails
 	 */
 	public String ocrRegionText(String emulatorNumber, DTOPoint p1, DTOPoint p2) throws IOException, TesseractException {
-		BufferedImage image = ImageIO.read(new ByteArrayInputStream(captureScreenshot(emulatorNumber)));
-		if (image == null)
-			throw new IOException("Could not capture image.");
+		return ocrRegionText(emulatorNumber, p1, p2, OcrProfile.TEXT);
+	}
 
+	/**
+	 * Performs OCR on a region of the emulator screen, preprocessed for the kind of text it holds.
+	 * @param emulatorNumber Emulator identifier
+	 * @param p1 First corner
+	 * @param p2 Second corner
+	 * @param profile Kind of text in the region
+	 * @return Recognized text
+	 * @throws IOException if image capture fails
+	 * @throws TesseractException if OCR fails
+	 */
+	public String ocrRegionText(String emulatorNumber, DTOPoint p1, DTOPoint p2, OcrProfile profile) throws IOException, TesseractException {
+		Frame frame;
+		try {
+			frame = captureFrame(emulatorNumber);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Could not capture image.", e);
+		}
+		try (frame) {
+			return ocrRegionText(frame, p1, p2, profile);
+		}
+	}
+
+	/**
+	 * Performs OCR on a region of an already captured frame.
+	 * @param frame Screen snapshot
+	 * @param p1 First corner
+	 * @param p2 Second corner
+	 * @return Recognized text
+	 * @throws TesseractException if OCR fails
+	 */
+	public String ocrRegionText(Frame frame, DTOPoint p1, DTOPoint p2) throws TesseractException {
+		return ocrRegionText(frame, p1, p2, OcrProfile.TEXT);
+	}
+
+	/**
+	 * Performs OCR on a region of an already captured frame, preprocessed for the kind of text it holds.
+	 * @param frame Screen snapshot
+	 * @param p1 First corner
+	 * @param p2 Second corner
+	 * @param profile Kind of text in the region
+	 * @return Recognized text
+	 * @throws TesseractException if OCR fails
+	 */
+	public String ocrRegionText(Frame frame, DTOPoint p1, DTOPoint p2, OcrProfile profile) throws TesseractException {
 		int x = Math.min(p1.getX(), p2.getX());
 		int y = Math.min(p1.getY(), p2.getY());
 		int width = Math.abs(p1.getX() - p2.getX());
 		int height = Math.abs(p1.getY() - p2.getY());
 
-		BufferedImage subImage = image.getSubimage(x, y, width, height);
-		Tesseract tesseract = new Tesseract();
-		tesseract.setDatapath("lib/tesseract");
-		tesseract.setLanguage("eng");
+		// Tesseract reads the frame's pixels directly, with no capture or image decode
+		Mat region = frame.region(x, y, width, height);
+		try {
+			return OcrService.recognize(region, profile);
+		} finally {
+			region.release();
+		}
+	}
+
+	/**
+	 * Reads a countdown such as 02:03:04 or 1d 02:03:04 from a region of the emulator screen.
+	 * @param emulatorNumber Emulator identifier
+	 * @param p1 First corner
+	 * @param p2 Second corner
+	 * @return The countdown, or null if the region does not hold one
+	 * @throws IOException if image capture fails
+	 * @throws TesseractException if the fallback OCR fails
+	 */
+	public Duration ocrRegionDuration(String emulatorNumber, DTOPoint p1, DTOPoint p2) throws IOException, TesseractException {
+		Frame frame;
+		try {
+			frame = captureFrame(emulatorNumber);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Could not capture image.", e);
+		}
+		try (frame) {
+			return ocrRegionDuration(frame, p1, p2);
+		}
+	}
+
+	/**
+	 * Reads a countdown from a region of an already captured frame, with the glyph recognizer when it
+	 * is confident and Tesseract otherwise.
+	 * @param frame Screen snapshot
+	 * @param p1 First corner
+	 * @param p2 Second corner
+	 * @return The countdown, or null if the region does not hold one
+	 * @throws TesseractException if the fallback OCR fails
+	 */
+	public Duration ocrRegionDuration(Frame frame, DTOPoint p1, DTOPoint p2) throws TesseractException {
+		Mat region = frame.region(Math.min(p1.getX(), p2.getX()), Math.min(p1.getY(), p2.getY()), Math.abs(p1.getX() - p2.getX()), Math.abs(p1.getY() - p2.getY()));
+		try {
+			return OcrService.readDuration(region);
+		} finally {
+			region.release();
+		}
+	}
 
-		return tesseract.doOCR(subImage);
+	/**
+	 * Captures the emulator screen into a {@link Frame} without any PNG encode or decode.
+	 * The caller owns the returned frame and must close it.
+	 * @param emulatorNumber Emulator identifier
+	 * @return Screen snapshot
+	 */
+	public Frame captureFrame(String emulatorNumber) {
+		return captureFrameWithDdmlib(emulatorNumber);
 	}
 
 	/**
-	 * Captures a screenshot from the emulator.
+	 * Captures a screenshot from the emulator encoded as PNG. Intended for debug dumps only,
+	 * template searches and OCR should use {@link #captureFrame(String)}.
 	 * @param emulatorNumber Emulator identifier
 	 * @return PNG image bytes
 	 */
 	public byte[] captureScreenshot(String emulatorNumber) {
-		return captureScreenshotWithDdmlib(emulatorNumber);
+		try (Frame frame = captureFrame(emulatorNumber)) {
+			return frame.toPng();
+		}
 	}
 
 	/**
@@ -627,4 +1037,10 @@ public abstract class Emulator {
 		return serial;
 	}
 
+	/**
+	 * Foreground package of a device and when it was read.
+	 */
+	private record ForegroundApp(String packageName, long timestamp) {
+	}
+
 }
@@ -1,22 +1,35 @@
 package cl.camodev.wosbot.emulator;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 
+import cl.camodev.utiles.Frame;
 import cl.camodev.utiles.ImageSearchUtil;
+import cl.camodev.utiles.MatPool;
+import cl.camodev.utiles.MatchMemo;
+import cl.camodev.utiles.OcrConfig;
+import cl.camodev.utiles.OcrProfile;
+import cl.camodev.utiles.OcrService;
+import cl.camodev.utiles.ScreenClassifier;
 import cl.camodev.wosbot.console.enumerable.EnumConfigurationKey;
+import cl.camodev.wosbot.console.enumerable.EnumTemplates;
 import cl.camodev.wosbot.emulator.impl.LDPlayerEmulator;
 import cl.camodev.wosbot.emulator.impl.MEmuEmulator;
 import cl.camodev.wosbot.emulator.impl.MuMuEmulator;
 import cl.camodev.wosbot.ot.DTOImageSearchResult;
 import cl.camodev.wosbot.ot.DTOPoint;
 import cl.camodev.wosbot.ot.DTOProfiles;
+import cl.camodev.wosbot.ot.DTOScreenState;
+import cl.camodev.wosbot.ot.DTOTemplateSearchResult;
 import cl.camodev.wosbot.serv.impl.ServConfig;
 import cl.camodev.wosbot.serv.task.TaskQueue;
 import cl.camodev.wosbot.serv.task.WaitingThread;
@@ -35,6 +48,9 @@ public class EmulatorManager {
 	private final PriorityQueue<WaitingThread> waitingQueue = new PriorityQueue<>();
 	private Emulator emulator;
 	private int MAX_RUNNING_EMULATORS = 3;
+	// Memo de resultados de búsqueda por emulador, es decir por perfil
+	private final ConcurrentHashMap<String, MatchMemo> matchMemos = new ConcurrentHashMap<>();
+	private int matchMemoSize = 0;
 
 	private EmulatorManager() {
 
@@ -69,6 +85,11 @@ public class EmulatorManager {
 				throw new IllegalStateException("No path found for the selected emulator: " + emulatorType.getDisplayName());
 			}
 
+			if (this.emulator != null) {
+				this.emulator.getStateMonitor().stop();
+				this.emulator.getDeviceRegistry().close();
+			}
+
 			switch (emulatorType) {
 			case MUMU:
 				this.emulator = new MuMuEmulator(consolePath);
@@ -82,8 +103,24 @@ public class EmulatorManager {
 			default:
 				throw new IllegalArgumentException("Unsupported emulator type: " + emulatorType);
 			}
-
-            logger.info("Emulator initialized: {}", emulatorType.getDisplayName());
+			emulator.getHealthTracker().configure(
+					getConfigInt(globalConfig, EnumConfigurationKey.ADB_BREAKER_FAILURES_INT),
+					getConfigInt(globalConfig, EnumConfigurationKey.ADB_BREAKER_OPEN_TIME_MS_INT),
+					getConfigInt(globalConfig, EnumConfigurationKey.ADB_BACKOFF_BASE_MS_INT),
+					getConfigInt(globalConfig, EnumConfigurationKey.ADB_BACKOFF_MAX_MS_INT),
+					getConfigInt(globalConfig, EnumConfigurationKey.ADB_GLOBAL_RESTART_DEVICES_INT));
+			emulator.setInputBackend(InputBackend.fromConfig(globalConfig.get(emulatorType.getInputBackendConfigKey()), InputBackend.INPUT_COMMAND));
+			ImageSearchUtil.setPyramidMatching(getConfigBoolean(globalConfig, EnumConfigurationKey.IMAGE_PYRAMID_MATCHING_BOOL));
+			ImageSearchUtil.setPrefilter(getConfigBoolean(globalConfig, EnumConfigurationKey.IMAGE_PREFILTER_BOOL));
+			ImageSearchUtil.setPrefilterValidation(getConfigBoolean(globalConfig, EnumConfigurationKey.IMAGE_PREFILTER_VALIDATION_BOOL));
+			MatPool.setLeakDetection(getConfigBoolean(globalConfig, EnumConfigurationKey.BOOL_DEBUG));
+			matchMemoSize = getConfigInt(globalConfig, EnumConfigurationKey.IMAGE_MATCH_MEMO_SIZE_INT);
+			matchMemos.clear();
+			OcrService.setMaxEnginesPerConfig(getConfigInt(globalConfig, EnumConfigurationKey.OCR_ENGINE_POOL_SIZE_INT));
+			// Carga el traineddata en segundo plano para que el primer OCR de una tarea no lo pague
+			CompletableFuture.runAsync(() -> OcrService.warmUp(OcrConfig.DEFAULT));
+
+            logger.info("Emulator initialized: {} (input backend {})", emulatorType.getDisplayName(), emulator.getInputBackend());
 			//restartAdbServer();
 
 		} catch (IllegalArgumentException e) {
@@ -91,6 +128,14 @@ public class EmulatorManager {
 		}
 	}
 
+	private int getConfigInt(HashMap<String, String> globalConfig, EnumConfigurationKey key) {
+		return Optional.ofNullable(globalConfig.get(key.name())).map(Integer::parseInt).orElse(Integer.parseInt(key.getDefaultValue()));
+	}
+
+	private boolean getConfigBoolean(HashMap<String, String> globalConfig, EnumConfigurationKey key) {
+		return Optional.ofNullable(globalConfig.get(key.name())).map(Boolean::parseBoolean).orElse(Boolean.parseBoolean(key.getDefaultValue()));
+	}
+
 	/**
 	 * Verifica si el emulador ha sido configurado antes de ejecutar cualquier acción.
 	 */
@@ -101,13 +146,45 @@ public class EmulatorManager {
 	}
 
 	/**
-	 * Captura una pantalla del emulador.
+	 * Captura una pantalla del emulador en formato PNG (solo para volcados de depuración).
 	 */
 	public byte[] captureScreenshotViaADB(String emulatorNumber) {
 		checkEmulatorInitialized();
 		return emulator.captureScreenshot(emulatorNumber);
 	}
 
+	/**
+	 * Captures the emulator screen once and decodes it into a {@link Frame} that can be shared by
+	 * several searches and OCR reads. The caller owns the frame and must close it.
+	 */
+	public Frame captureFrame(String emulatorNumber) {
+		checkEmulatorInitialized();
+		Frame frame = emulator.captureFrame(emulatorNumber);
+		if (frame != null && matchMemoSize > 0) {
+			frame.setMatchMemo(matchMemos.computeIfAbsent(emulatorNumber, k -> new MatchMemo(matchMemoSize)));
+		}
+		return frame;
+	}
+
+	/**
+	 * Estadísticas del memo de búsquedas de un emulador, o null si todavía no tiene.
+	 */
+	public MatchMemo.MemoStats getMatchMemoStats(String emulatorNumber) {
+		MatchMemo memo = matchMemos.get(emulatorNumber);
+		return memo == null ? null : memo.getStats();
+	}
+
+	/**
+	 * Releases a stale frame and captures a fresh one. Use it whenever the UI may have changed
+	 * since {@code staleFrame} was taken (after taps, swipes or waits).
+	 */
+	public Frame refreshFrame(String emulatorNumber, Frame staleFrame) {
+		if (staleFrame != null) {
+			staleFrame.close();
+		}
+		return captureFrame(emulatorNumber);
+	}
+
 	/**
 	 * Realiza un tap en una coordenada específica.
 	 */
@@ -165,13 +242,54 @@ public class EmulatorManager {
 		return emulator.ocrRegionText(emulatorNumber, p1, p2);
 	}
 
+	/**
+	 * Ejecuta OCR en una región de un frame ya capturado, sin volver a capturar la pantalla.
+	 */
+	public String ocrRegionText(Frame frame, DTOPoint p1, DTOPoint p2) throws TesseractException {
+		checkEmulatorInitialized();
+		return emulator.ocrRegionText(frame, p1, p2);
+	}
+
+	/**
+	 * Ejecuta OCR en una región de la pantalla, preprocesada según el tipo de texto que contiene.
+	 */
+	public String ocrRegionText(String emulatorNumber, DTOPoint p1, DTOPoint p2, OcrProfile profile) throws IOException, TesseractException {
+		checkEmulatorInitialized();
+		return emulator.ocrRegionText(emulatorNumber, p1, p2, profile);
+	}
+
+	/**
+	 * Ejecuta OCR en una región de un frame ya capturado, preprocesada según el tipo de texto que contiene.
+	 */
+	public String ocrRegionText(Frame frame, DTOPoint p1, DTOPoint p2, OcrProfile profile) throws TesseractException {
+		checkEmulatorInitialized();
+		return emulator.ocrRegionText(frame, p1, p2, profile);
+	}
+
+	/**
+	 * Lee una cuenta regresiva (hh:mm:ss, con días opcionales) en una región de la pantalla.
+	 */
+	public Duration ocrRegionDuration(String emulatorNumber, DTOPoint p1, DTOPoint p2) throws IOException, TesseractException {
+		checkEmulatorInitialized();
+		return emulator.ocrRegionDuration(emulatorNumber, p1, p2);
+	}
+
+	/**
+	 * Lee una cuenta regresiva en una región de un frame ya capturado.
+	 */
+	public Duration ocrRegionDuration(Frame frame, DTOPoint p1, DTOPoint p2) throws TesseractException {
+		checkEmulatorInitialized();
+		return emulator.ocrRegionDuration(frame, p1, p2);
+	}
+
 	/**
 	 * Busca una imagen en la pantalla capturada del emulador.
 	 */
 	public DTOImageSearchResult searchTemplate(String emulatorNumber, String templatePath, DTOPoint topLeftCorner, DTOPoint bottomRightCorner , double threshold) {
 		checkEmulatorInitialized();
-		byte[] screenshot = captureScreenshotViaADB(emulatorNumber);
-		return ImageSearchUtil.buscarTemplate(screenshot, templatePath, topLeftCorner, bottomRightCorner, threshold);
+		try (Frame frame = captureFrame(emulatorNumber)) {
+			return ImageSearchUtil.buscarTemplate(frame, templatePath, topLeftCorner, bottomRightCorner, threshold);
+		}
 	}
 
 	/**
@@ -179,25 +297,86 @@ public class EmulatorManager {
 	 */
 	public DTOImageSearchResult searchTemplate(String emulatorNumber, String templatePath, double threshold) {
 		checkEmulatorInitialized();
-		byte[] screenshot = captureScreenshotViaADB(emulatorNumber);
-		return ImageSearchUtil.buscarTemplate(screenshot, templatePath, new DTOPoint(0,0), new DTOPoint(720,1280), threshold);
+		try (Frame frame = captureFrame(emulatorNumber)) {
+			return ImageSearchUtil.buscarTemplate(frame, templatePath, new DTOPoint(0,0), new DTOPoint(720,1280), threshold);
+		}
 	}
 
 	public List<DTOImageSearchResult> searchTemplates(String emulatorNumber, String templatePath, DTOPoint topLeftCorner, DTOPoint bottomRightCorner , double threshold, int maxResults) {
 		checkEmulatorInitialized();
-		byte[] screenshot = captureScreenshotViaADB(emulatorNumber);
-		return ImageSearchUtil.searchTemplateMultiple(screenshot, templatePath, topLeftCorner, bottomRightCorner, threshold, maxResults);
+		try (Frame frame = captureFrame(emulatorNumber)) {
+			return ImageSearchUtil.searchTemplateMultiple(frame, templatePath, topLeftCorner, bottomRightCorner, threshold, maxResults);
+		}
 	}
 
 	public List<DTOImageSearchResult> searchTemplates(String emulatorNumber, String templatePath, double threshold, int maxResults) {
 		checkEmulatorInitialized();
-		byte[] screenshot = captureScreenshotViaADB(emulatorNumber);
-		return ImageSearchUtil.searchTemplateMultiple(screenshot, templatePath, new DTOPoint(0,0), new DTOPoint(720,1280), threshold, maxResults);
+		try (Frame frame = captureFrame(emulatorNumber)) {
+			return ImageSearchUtil.searchTemplateMultiple(frame, templatePath, new DTOPoint(0,0), new DTOPoint(720,1280), threshold, maxResults);
+		}
+	}
+
+	/**
+	 * Busca una imagen dentro de un frame ya capturado.
+	 */
+	public DTOImageSearchResult searchTemplate(Frame frame, String templatePath, DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double threshold) {
+		return ImageSearchUtil.buscarTemplate(frame, templatePath, topLeftCorner, bottomRightCorner, threshold);
+	}
+
+	/**
+	 * Busca una imagen en todo un frame ya capturado.
+	 */
+	public DTOImageSearchResult searchTemplate(Frame frame, String templatePath, double threshold) {
+		return ImageSearchUtil.buscarTemplate(frame, templatePath, new DTOPoint(0, 0), new DTOPoint(720, 1280), threshold);
+	}
+
+	public List<DTOImageSearchResult> searchTemplates(Frame frame, String templatePath, DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double threshold, int maxResults) {
+		return ImageSearchUtil.searchTemplateMultiple(frame, templatePath, topLeftCorner, bottomRightCorner, threshold, maxResults);
+	}
+
+	public List<DTOImageSearchResult> searchTemplates(Frame frame, String templatePath, double threshold, int maxResults) {
+		return ImageSearchUtil.searchTemplateMultiple(frame, templatePath, new DTOPoint(0, 0), new DTOPoint(720, 1280), threshold, maxResults);
+	}
+
+	/**
+	 * Busca varios templates en paralelo sobre un mismo frame. Devuelve un resultado por template, en el mismo orden.
+	 */
+	public List<DTOTemplateSearchResult> searchTemplates(Frame frame, List<EnumTemplates> templates, DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double threshold) {
+		return ImageSearchUtil.searchTemplates(frame, templates, topLeftCorner, bottomRightCorner, threshold);
+	}
+
+	public List<DTOTemplateSearchResult> searchTemplates(Frame frame, List<EnumTemplates> templates, double threshold) {
+		return ImageSearchUtil.searchTemplates(frame, templates, new DTOPoint(0, 0), new DTOPoint(720, 1280), threshold);
+	}
+
+	/**
+	 * Busca varios templates en paralelo y devuelve el primero encontrado según el orden de prioridad de la lista.
+	 */
+	public DTOTemplateSearchResult searchFirstTemplate(Frame frame, List<EnumTemplates> templates, DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double threshold) {
+		return ImageSearchUtil.searchFirstTemplate(frame, templates, topLeftCorner, bottomRightCorner, threshold);
+	}
+
+	/**
+	 * Clasifica la pantalla actual del juego con una sola captura.
+	 */
+	public DTOScreenState classifyScreen(String emulatorNumber) {
+		checkEmulatorInitialized();
+		try (Frame frame = captureFrame(emulatorNumber)) {
+			return ScreenClassifier.classify(frame);
+		}
+	}
+
+	/**
+	 * Clasifica la pantalla del juego en un frame ya capturado.
+	 */
+	public DTOScreenState classifyScreen(Frame frame) {
+		return ScreenClassifier.classify(frame);
 	}
 
 	public void launchEmulator(String emulatorNumber) {
 		checkEmulatorInitialized();
 		emulator.launchEmulator(emulatorNumber);
+		emulator.getStateMonitor().invalidate(emulatorNumber);
 	}
 
 	/**
@@ -206,6 +385,8 @@ public class EmulatorManager {
 	public void closeEmulator(String emulatorNumber) {
 		checkEmulatorInitialized();
 		emulator.closeEmulator(emulatorNumber);
+		emulator.getStateMonitor().invalidate(emulatorNumber);
+		emulator.invalidateForegroundApp(emulatorNumber);
 	}
 
 	public void launchApp(String emulatorNumber, String packageName) {
@@ -215,7 +396,16 @@ public class EmulatorManager {
 
 	public boolean isRunning(String emulatorNumber) {
 		checkEmulatorInitialized();
-		return emulator.isRunning(emulatorNumber);
+		return emulator.getStateMonitor().isRunning(emulatorNumber);
+	}
+
+	/**
+	 * Deja de vigilar el estado del emulador, cuando el perfil que lo usa se detiene.
+	 */
+	public void untrackEmulator(String emulatorNumber) {
+		if (emulator != null) {
+			emulator.getStateMonitor().untrack(emulatorNumber);
+		}
 	}
 
 	public boolean isPackageRunning(String emulatorNumber, String packageName) {
@@ -269,6 +459,12 @@ public class EmulatorManager {
 		lock.lock();
 		try {
             logger.info("Profile {} is releasing queue slot.", profile.getName());
+			MatchMemo.MemoStats memoStats = getMatchMemoStats(profile.getEmulatorNumber());
+			if (memoStats != null) {
+				logger.debug("Match memo for profile {}: {} hits, {} misses ({}% hit rate), {} ms of matching saved, {} ms spent hashing",
+						profile.getName(), memoStats.hits(), memoStats.misses(), Math.round(memoStats.hitRatio() * 100),
+						TimeUnit.NANOSECONDS.toMillis(memoStats.savedNanos()), TimeUnit.NANOSECONDS.toMillis(memoStats.hashNanos()));
+			}
 			MAX_RUNNING_EMULATORS++;
 			permitsAvailable.signalAll();
 		} finally {
@@ -0,0 +1,164 @@
+package cl.camodev.wosbot.emulator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps a cached, timestamped running state for every emulator instance in use.
+ * <p>
+ * A background thread periodically asks the emulator console for the state of all tracked
+ * instances at once through {@link Emulator#queryRunningStates(java.util.Collection)}, so actions
+ * can check {@link #isRunning(String)} without spawning a console process each time. An instance is
+ * tracked from its first query on; a missing, invalidated or stale entry is refreshed on demand.
+ * <p>
+ * An instance nobody has asked about for {@value #IDLE_UNTRACK_MS} ms is no longer polled, and one whose
+ * profile stopped is dropped with {@link #untrack(String)}. The thread itself stops once no instance is
+ * tracked, and starts again with the next query.
+ */
+public class EmulatorStateMonitor {
+
+	private static final Logger logger = LoggerFactory.getLogger(EmulatorStateMonitor.class);
+	private static final long POLL_INTERVAL_MS = 3000;
+	private static final long MAX_STATE_AGE_MS = 6000;
+	private static final long IDLE_UNTRACK_MS = 60000;
+
+	private final Emulator emulator;
+	// Tracked instances and when each was last asked about
+	private final ConcurrentHashMap<String, Long> trackedEmulators = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, RunningState> states = new ConcurrentHashMap<>();
+	private final Object refreshLock = new Object();
+	private ScheduledExecutorService poller;
+
+	public EmulatorStateMonitor(Emulator emulator) {
+		this.emulator = emulator;
+	}
+
+	/**
+	 * Returns the cached running state of an instance, refreshing it first if it is missing or stale.
+	 * @param emulatorNumber Emulator identifier
+	 * @return true if the emulator console reports the instance as running
+	 */
+	public boolean isRunning(String emulatorNumber) {
+		if (trackedEmulators.put(emulatorNumber, System.currentTimeMillis()) == null) {
+			startPolling();
+		}
+		RunningState state = states.get(emulatorNumber);
+		if (!isFresh(state)) {
+			refresh(emulatorNumber);
+			state = states.get(emulatorNumber);
+		}
+		return state != null && state.running();
+	}
+
+	/**
+	 * Drops the cached state of an instance, typically after launching or closing it.
+	 * @param emulatorNumber Emulator identifier
+	 */
+	public void invalidate(String emulatorNumber) {
+		states.remove(emulatorNumber);
+	}
+
+	/**
+	 * Stops tracking an instance, typically when the profile using it stops. It is tracked again if
+	 * queried later.
+	 * @param emulatorNumber Emulator identifier
+	 */
+	public void untrack(String emulatorNumber) {
+		trackedEmulators.remove(emulatorNumber);
+		states.remove(emulatorNumber);
+		stopIfIdle();
+	}
+
+	/**
+	 * Stops the background polling. Cached states are kept and refreshed on demand afterwards.
+	 */
+	public synchronized void stop() {
+		if (poller != null) {
+			poller.shutdownNow();
+			poller = null;
+		}
+	}
+
+	private synchronized void startPolling() {
+		if (poller == null) {
+			poller = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "emulator-state-monitor");
+				thread.setDaemon(true);
+				return thread;
+			});
+			poller.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops the poller when nothing is tracked. Checked under the same lock as {@link #startPolling()},
+	 * so an instance tracked meanwhile either keeps the poller alive or starts a new one.
+	 */
+	private synchronized void stopIfIdle() {
+		if (trackedEmulators.isEmpty() && poller != null) {
+			poller.shutdown();
+			poller = null;
+			logger.debug("No emulator is tracked, state polling stopped");
+		}
+	}
+
+	private void poll() {
+		long now = System.currentTimeMillis();
+		trackedEmulators.forEach((tracked, lastQuery) -> {
+			if (now - lastQuery > IDLE_UNTRACK_MS && trackedEmulators.remove(tracked, lastQuery)) {
+				states.remove(tracked);
+				logger.debug("Emulator {} not queried for {} ms, no longer polled", tracked, IDLE_UNTRACK_MS);
+			}
+		});
+		stopIfIdle();
+		refresh(null);
+	}
+
+	/**
+	 * Queries all tracked instances in one go. Callers that raced on the same stale entry only
+	 * trigger a single console query: the others find it fresh once they get the lock.
+	 * @param emulatorNumber Instance whose state is needed, or null for a periodic refresh
+	 */
+	private void refresh(String emulatorNumber) {
+		synchronized (refreshLock) {
+			if (emulatorNumber != null && isFresh(states.get(emulatorNumber))) {
+				return;
+			}
+			List<String> emulators = List.copyOf(trackedEmulators.keySet());
+			if (emulators.isEmpty()) {
+				return;
+			}
+			try {
+				Map<String, Boolean> result = emulator.queryRunningStates(emulators);
+				long now = System.currentTimeMillis();
+				for (String tracked : emulators) {
+					boolean running = result.getOrDefault(tracked, false);
+					RunningState previous = states.put(tracked, new RunningState(running, now));
+					if (previous != null && previous.running() != running) {
+						logger.info("Emulator {} is now {}", tracked, running ? "running" : "stopped");
+					}
+				}
+			} catch (Exception e) {
+				logger.warn("Could not refresh emulator states: {}", e.getMessage());
+			}
+		}
+	}
+
+	private static boolean isFresh(RunningState state) {
+		return state != null && state.ageMillis() <= MAX_STATE_AGE_MS;
+	}
+
+	private record RunningState(boolean running, long timestamp) {
+
+		private long ageMillis() {
+			return System.currentTimeMillis() - timestamp;
+		}
+	}
+}
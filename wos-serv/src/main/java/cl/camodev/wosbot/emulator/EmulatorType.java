@@ -4,19 +4,21 @@ import cl.camodev.wosbot.console.enumerable.EnumConfigurationKey;
 
 public enum EmulatorType {
 	// @formatter:off
-    MUMU("MuMuPlayer", EnumConfigurationKey.MUMU_PATH_STRING.name(), "MuMuManager.exe","C:\\Program Files\\Netease\\MuMuPlayerGlobal-12.0\\shell\\"),
-    MEMU("MEmu Player", EnumConfigurationKey.MEMU_PATH_STRING.name(), "memuc.exe","C:\\Program Files\\Microvirt\\MEmu\\"),
-    LDPLAYER("LDPlayer", EnumConfigurationKey.LDPLAYER_PATH_STRING.name(), "ldconsole.exe","C:\\LDPlayer\\LDPlayer9\\");
+    MUMU("MuMuPlayer", EnumConfigurationKey.MUMU_PATH_STRING.name(), EnumConfigurationKey.MUMU_INPUT_BACKEND_STRING.name(), "MuMuManager.exe","C:\\Program Files\\Netease\\MuMuPlayerGlobal-12.0\\shell\\"),
+    MEMU("MEmu Player", EnumConfigurationKey.MEMU_PATH_STRING.name(), EnumConfigurationKey.MEMU_INPUT_BACKEND_STRING.name(), "memuc.exe","C:\\Program Files\\Microvirt\\MEmu\\"),
+    LDPLAYER("LDPlayer", EnumConfigurationKey.LDPLAYER_PATH_STRING.name(), EnumConfigurationKey.LDPLAYER_INPUT_BACKEND_STRING.name(), "ldconsole.exe","C:\\LDPlayer\\LDPlayer9\\");
 	    // @formatter:on
 
 	private final String displayName;
 	private final String configKey;
+	private final String inputBackendConfigKey;
 	private final String executableName;
 	private final String defaultPath;
 
-	EmulatorType(String displayName, String configKey, String executableName, String defaultPath) {
+	EmulatorType(String displayName, String configKey, String inputBackendConfigKey, String executableName, String defaultPath) {
 		this.displayName = displayName;
 		this.configKey = configKey;
+		this.inputBackendConfigKey = inputBackendConfigKey;
 		this.executableName = executableName;
 		this.defaultPath = defaultPath;
 	}
@@ -29,6 +31,10 @@ public enum EmulatorType {
 		return configKey;
 	}
 
+	public String getInputBackendConfigKey() {
+		return inputBackendConfigKey;
+	}
+
 	public String getExecutableName() {
 		return executableName;
 	}
@@ -0,0 +1,37 @@
+package cl.camodev.wosbot.emulator;
+
+/**
+ * Strategy used by {@link Emulator} to inject taps into the device.
+ */
+public enum InputBackend {
+	// @formatter:off
+	/** {@code input tap}, starts an {@code app_process} on the device for every tap. Works everywhere. */
+	INPUT_COMMAND("input tap"),
+	/** Raw evdev events written to the touchscreen node by {@code printf}, or {@code sendevent} where that fails; falls back to {@code input tap}. */
+	SENDEVENT("sendevent");
+	// @formatter:on
+
+	private final String displayName;
+
+	InputBackend(String displayName) {
+		this.displayName = displayName;
+	}
+
+	public String getDisplayName() {
+		return displayName;
+	}
+
+	/**
+	 * Parses a stored configuration value, returning {@code fallback} when it is missing or unknown.
+	 */
+	public static InputBackend fromConfig(String value, InputBackend fallback) {
+		if (value == null || value.isEmpty()) {
+			return fallback;
+		}
+		try {
+			return InputBackend.valueOf(value);
+		} catch (IllegalArgumentException e) {
+			return fallback;
+		}
+	}
+}
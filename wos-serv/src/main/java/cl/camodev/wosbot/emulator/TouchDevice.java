@@ -0,0 +1,268 @@
+package cl.camodev.wosbot.emulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Multi-touch input node of a device, as reported by {@code getevent -p}, able to build the shell
+ * line of a tap.
+ * <p>
+ * Screen coordinates are scaled to the axis range of the node. Both the slotted (type B) and the
+ * anonymous (type A) multi-touch protocols are supported.
+ * <p>
+ * Once the size of {@code struct input_event} seen by the device shell is known, see
+ * {@link #buildProbeCommand(int)}, the press and the release are each written to the node as raw
+ * structs by a single {@code printf}, so a tap costs three short processes: the press, the
+ * {@link #HOLD_SECONDS} s {@code sleep} and the release. Without it, every event falls back to its
+ * own {@code sendevent} process, 9 to 11 of them per tap. {@code Emulator} logs the acknowledged
+ * latency of the last tap of each burst at debug level to compare the backends on a given instance.
+ */
+public class TouchDevice {
+
+	private static final int EV_SYN = 0;
+	private static final int EV_KEY = 1;
+	private static final int EV_ABS = 3;
+	private static final int SYN_REPORT = 0;
+	private static final int SYN_MT_REPORT = 2;
+	private static final int BTN_TOUCH = 0x14a;
+	private static final int ABS_MT_SLOT = 0x2f;
+	private static final int ABS_MT_TOUCH_MAJOR = 0x30;
+	private static final int ABS_MT_POSITION_X = 0x35;
+	private static final int ABS_MT_POSITION_Y = 0x36;
+	private static final int ABS_MT_TRACKING_ID = 0x39;
+	private static final int ABS_MT_PRESSURE = 0x3a;
+
+	/** Time the finger stays down; some games ignore a press and release delivered in the same instant. */
+	private static final String HOLD_SECONDS = "0.05";
+
+	/** {@code struct input_event} sizes to probe: 64-bit shells first, then 32-bit ones. */
+	public static final int[] EVENT_SIZES = { 24, 16 };
+	/** Printed by {@link #buildProbeCommand(int)} when the write was accepted. */
+	public static final String PROBE_OK = "written";
+
+	private static final Pattern DEVICE_PATTERN = Pattern.compile("add device \\d+:\\s*(\\S+)");
+	private static final Pattern SECTION_PATTERN = Pattern.compile("^\\s*(?:events:\\s*)?([A-Z]+) \\(([0-9a-fA-F]{4})\\):(.*)$");
+	private static final Pattern ABS_PATTERN = Pattern.compile("([0-9a-fA-F]{4})\\s*:\\s*value -?\\d+, min (-?\\d+), max (-?\\d+)");
+	private static final Pattern CODE_PATTERN = Pattern.compile("\\b([0-9a-fA-F]{4})\\b");
+
+	private final String path;
+	private final int maxX;
+	private final int maxY;
+	private final boolean slotted;
+	private final boolean btnTouch;
+	private final int maxTouchMajor;
+	private final int maxPressure;
+	private final int screenWidth;
+	private final int screenHeight;
+	// 0 until probed: events then go through sendevent
+	private final int eventSize;
+	private final AtomicInteger trackingId = new AtomicInteger();
+
+	private TouchDevice(String path, int maxX, int maxY, boolean slotted, boolean btnTouch, int maxTouchMajor, int maxPressure, int screenWidth, int screenHeight) {
+		this(path, maxX, maxY, slotted, btnTouch, maxTouchMajor, maxPressure, screenWidth, screenHeight, 0);
+	}
+
+	private TouchDevice(String path, int maxX, int maxY, boolean slotted, boolean btnTouch, int maxTouchMajor, int maxPressure, int screenWidth, int screenHeight, int eventSize) {
+		this.path = path;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.slotted = slotted;
+		this.btnTouch = btnTouch;
+		this.maxTouchMajor = maxTouchMajor;
+		this.maxPressure = maxPressure;
+		this.screenWidth = screenWidth;
+		this.screenHeight = screenHeight;
+		this.eventSize = eventSize;
+	}
+
+	/**
+	 * Picks the first node that reports both multi-touch position axes.
+	 * @param geteventOutput Output of {@code getevent -p}
+	 * @param screenWidth Screen width in pixels
+	 * @param screenHeight Screen height in pixels
+	 * @return the touch node, or empty if the device exposes none
+	 */
+	public static Optional<TouchDevice> parse(String geteventOutput, int screenWidth, int screenHeight) {
+		String path = null;
+		String section = "";
+		int maxX = -1, maxY = -1, maxTouchMajor = -1, maxPressure = -1;
+		boolean slotted = false, btnTouch = false;
+
+		for (String line : (geteventOutput + "\nadd device 0: <end>").split("\\r?\\n")) {
+			Matcher device = DEVICE_PATTERN.matcher(line);
+			if (device.find()) {
+				if (path != null && maxX > 0 && maxY > 0) {
+					return Optional.of(new TouchDevice(path, maxX, maxY, slotted, btnTouch, maxTouchMajor, maxPressure, screenWidth, screenHeight));
+				}
+				path = device.group(1);
+				section = "";
+				maxX = maxY = maxTouchMajor = maxPressure = -1;
+				slotted = btnTouch = false;
+				continue;
+			}
+
+			Matcher sectionMatcher = SECTION_PATTERN.matcher(line);
+			String content = line;
+			if (sectionMatcher.matches()) {
+				section = sectionMatcher.group(1);
+				content = sectionMatcher.group(3);
+			} else if (line.contains(":") && !ABS_PATTERN.matcher(line).find() && !line.trim().matches("[0-9a-fA-F ]+")) {
+				// name:, location:, input props: ... end the event listing
+				section = "";
+			}
+
+			if ("KEY".equals(section)) {
+				Matcher codes = CODE_PATTERN.matcher(content);
+				while (codes.find()) {
+					if (Integer.parseInt(codes.group(1), 16) == BTN_TOUCH) {
+						btnTouch = true;
+					}
+				}
+			} else if ("ABS".equals(section)) {
+				Matcher abs = ABS_PATTERN.matcher(content);
+				if (abs.find()) {
+					int code = Integer.parseInt(abs.group(1), 16);
+					int max = Integer.parseInt(abs.group(3));
+					switch (code) {
+					case ABS_MT_POSITION_X -> maxX = max;
+					case ABS_MT_POSITION_Y -> maxY = max;
+					case ABS_MT_SLOT -> slotted = true;
+					case ABS_MT_TOUCH_MAJOR -> maxTouchMajor = max;
+					case ABS_MT_PRESSURE -> maxPressure = max;
+					default -> {
+					}
+					}
+				}
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Builds a command that writes a lone {@code SYN_REPORT}, which changes nothing on the device, as a
+	 * raw struct of the given size. The kernel rejects writes whose length is not a multiple of the
+	 * struct size of the writing process, so {@link #PROBE_OK} is only printed for the right size.
+	 * @param eventSize Candidate size of {@code struct input_event}, see {@link #EVENT_SIZES}
+	 * @return shell command printing {@link #PROBE_OK} on success
+	 */
+	public String buildProbeCommand(int eventSize) {
+		StringBuilder sb = new StringBuilder(128);
+		printf(sb, List.of(new int[] { EV_SYN, SYN_REPORT, 0 }), eventSize);
+		return sb.append(" && echo ").append(PROBE_OK).toString();
+	}
+
+	/**
+	 * @param eventSize Size of {@code struct input_event} accepted by the node, or 0 to use sendevent
+	 * @return a copy of this node that writes its events with that size
+	 */
+	public TouchDevice withEventSize(int eventSize) {
+		return new TouchDevice(path, maxX, maxY, slotted, btnTouch, maxTouchMajor, maxPressure, screenWidth, screenHeight, eventSize);
+	}
+
+	/**
+	 * Builds a single shell line that presses the given screen point, holds it for
+	 * {@link #HOLD_SECONDS} seconds and releases it.
+	 * @param x Screen X in pixels
+	 * @param y Screen Y in pixels
+	 * @return {@code ;}-separated commands with a {@code sleep} between press and release
+	 */
+	public String buildTapCommand(int x, int y) {
+		int axisX = Math.round((float) x * maxX / Math.max(1, screenWidth - 1));
+		int axisY = Math.round((float) y * maxY / Math.max(1, screenHeight - 1));
+
+		List<int[]> press = new ArrayList<>(8);
+		if (slotted) {
+			press.add(new int[] { EV_ABS, ABS_MT_SLOT, 0 });
+			press.add(new int[] { EV_ABS, ABS_MT_TRACKING_ID, trackingId.updateAndGet(id -> (id + 1) & 0xFFFF) });
+		}
+		press.add(new int[] { EV_ABS, ABS_MT_POSITION_X, Math.min(axisX, maxX) });
+		press.add(new int[] { EV_ABS, ABS_MT_POSITION_Y, Math.min(axisY, maxY) });
+		if (maxTouchMajor > 0) {
+			press.add(new int[] { EV_ABS, ABS_MT_TOUCH_MAJOR, Math.max(1, maxTouchMajor / 8) });
+		}
+		if (maxPressure > 0) {
+			press.add(new int[] { EV_ABS, ABS_MT_PRESSURE, Math.max(1, maxPressure / 2) });
+		}
+		if (!slotted) {
+			press.add(new int[] { EV_SYN, SYN_MT_REPORT, 0 });
+		}
+		if (btnTouch) {
+			press.add(new int[] { EV_KEY, BTN_TOUCH, 1 });
+		}
+		press.add(new int[] { EV_SYN, SYN_REPORT, 0 });
+
+		List<int[]> release = new ArrayList<>(3);
+		if (slotted) {
+			release.add(new int[] { EV_ABS, ABS_MT_TRACKING_ID, -1 });
+		} else {
+			release.add(new int[] { EV_SYN, SYN_MT_REPORT, 0 });
+		}
+		if (btnTouch) {
+			release.add(new int[] { EV_KEY, BTN_TOUCH, 0 });
+		}
+		release.add(new int[] { EV_SYN, SYN_REPORT, 0 });
+
+		StringBuilder sb = new StringBuilder(eventSize > 0 ? 1024 : 512);
+		write(sb, press);
+		sb.append(";sleep ").append(HOLD_SECONDS).append(';');
+		write(sb, release);
+		return sb.toString();
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	public int getEventSize() {
+		return eventSize;
+	}
+
+	private void write(StringBuilder sb, List<int[]> events) {
+		if (eventSize > 0) {
+			printf(sb, events, eventSize);
+			return;
+		}
+		for (int i = 0; i < events.size(); i++) {
+			int[] event = events.get(i);
+			if (i > 0) {
+				sb.append(';');
+			}
+			sb.append("sendevent ").append(path).append(' ').append(event[0]).append(' ').append(event[1]).append(' ').append(event[2]);
+		}
+	}
+
+	/**
+	 * Appends a {@code printf} writing the events as little-endian {@code struct input_event}s in one go.
+	 * The timestamp is left zeroed, the kernel stamps injected events itself. Every byte is an octal
+	 * escape, so nothing in the format can be taken for a conversion or end the quoting.
+	 */
+	private void printf(StringBuilder sb, List<int[]> events, int eventSize) {
+		sb.append("printf '");
+		for (int[] event : events) {
+			for (int i = 0; i < eventSize - 8; i++) {
+				sb.append("\\000");
+			}
+			octal(sb, event[0], 2);
+			octal(sb, event[1], 2);
+			octal(sb, event[2], 4);
+		}
+		sb.append("' > ").append(path);
+	}
+
+	private static void octal(StringBuilder sb, int value, int bytes) {
+		for (int i = 0; i < bytes; i++) {
+			int b = (value >>> (8 * i)) & 0xFF;
+			sb.append('\\').append((char) ('0' + (b >> 6))).append((char) ('0' + ((b >> 3) & 7))).append((char) ('0' + (b & 7)));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return path + " [" + (maxX + 1) + "x" + (maxY + 1) + ", " + (slotted ? "type B" : "type A") + ", "
+				+ (eventSize > 0 ? eventSize + "-byte events" : "sendevent") + "]";
+	}
+}
@@ -4,6 +4,9 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import cl.camodev.wosbot.emulator.Emulator;
 import org.slf4j.Logger;
@@ -58,6 +61,30 @@ public class LDPlayerEmulator extends Emulator {
         return false;
     }
 
+    /**
+     * Uses {@code ldconsole list2}, which reports every instance in a single call as
+     * {@code index,title,top-window,bind-window,android-started,pid,vbox-pid,...}.
+     */
+    @Override
+    protected Map<String, Boolean> queryRunningStates(Collection<String> emulatorNumbers) {
+        try {
+            Map<String, Boolean> running = new HashMap<>();
+            for (String line : readConsoleOutput(consolePath + File.separator + "ldconsole.exe", "list2")) {
+                String[] fields = line.trim().split(",");
+                if (fields.length > 5 && emulatorNumbers.contains(fields[0])) {
+                    running.put(fields[0], Integer.parseInt(fields[5].trim()) > 0);
+                }
+            }
+            emulatorNumbers.forEach(emulatorNumber -> running.putIfAbsent(emulatorNumber, false));
+            return running;
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("ldconsole list2 failed, checking instances one by one: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return super.queryRunningStates(emulatorNumbers);
+    }
+
     private void executeCommand(String[] command) {
         try {
             ProcessBuilder pb = new ProcessBuilder(command);
@@ -4,6 +4,9 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import cl.camodev.wosbot.emulator.Emulator;
 import org.slf4j.Logger;
@@ -61,6 +64,30 @@ public class MEmuEmulator extends Emulator {
 		return false;
 	}
 
+	/**
+	 * Uses {@code memuc listvms --running}, which lists every running instance in a single call as
+	 * {@code index,title,window,status,pid}.
+	 */
+	@Override
+	protected Map<String, Boolean> queryRunningStates(Collection<String> emulatorNumbers) {
+		try {
+			Map<String, Boolean> running = new HashMap<>();
+			emulatorNumbers.forEach(emulatorNumber -> running.put(emulatorNumber, false));
+			for (String line : readConsoleOutput(consolePath + File.separator + "memuc", "listvms", "--running")) {
+				String index = line.trim().split(",")[0];
+				if (running.containsKey(index)) {
+					running.put(index, true);
+				}
+			}
+			return running;
+		} catch (IOException e) {
+			logger.warn("memuc listvms failed, checking instances one by one: {}", e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return super.queryRunningStates(emulatorNumbers);
+	}
+
 	private void executeCommand(String[] command) {
 		try {
 			ProcessBuilder pb = new ProcessBuilder(command);
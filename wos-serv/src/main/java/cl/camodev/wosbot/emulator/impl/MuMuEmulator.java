@@ -4,6 +4,11 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import cl.camodev.wosbot.emulator.Emulator;
 import org.slf4j.Logger;
@@ -11,6 +16,8 @@ import org.slf4j.LoggerFactory;
 
 public class MuMuEmulator extends Emulator {
 	private static final Logger logger = LoggerFactory.getLogger(MuMuEmulator.class);
+	private static final Pattern INDEX_PATTERN = Pattern.compile("\"index\"\\s*:\\s*\"?(\\d+)");
+	private static final Pattern ANDROID_STARTED_PATTERN = Pattern.compile("\"is_android_started\"\\s*:\\s*(true|false)");
 
 	public MuMuEmulator(String consolePath) {
 		super(consolePath);
@@ -61,6 +68,36 @@ public class MuMuEmulator extends Emulator {
 		return false;
 	}
 
+	/**
+	 * Uses {@code MuMuManager.exe info -v all}, which returns the JSON description of every
+	 * instance in a single call, and reads {@code is_android_started} for each {@code index}.
+	 */
+	@Override
+	protected Map<String, Boolean> queryRunningStates(Collection<String> emulatorNumbers) {
+		try {
+			String json = String.join("", readConsoleOutput(consolePath + File.separator + "MuMuManager.exe", "info", "-v", "all"));
+			Map<String, Boolean> running = new HashMap<>();
+			// Each instance is a flat JSON object, so splitting on braces isolates its fields
+			for (String instance : json.split("[{}]")) {
+				Matcher index = INDEX_PATTERN.matcher(instance);
+				Matcher started = ANDROID_STARTED_PATTERN.matcher(instance);
+				if (index.find() && started.find() && emulatorNumbers.contains(index.group(1))) {
+					running.put(index.group(1), Boolean.parseBoolean(started.group(1)));
+				}
+			}
+			if (!running.isEmpty() || json.contains("index")) {
+				emulatorNumbers.forEach(emulatorNumber -> running.putIfAbsent(emulatorNumber, false));
+				return running;
+			}
+			logger.warn("Unexpected MuMuManager info output, checking instances one by one");
+		} catch (IOException e) {
+			logger.warn("MuMuManager info failed, checking instances one by one: {}", e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return super.queryRunningStates(emulatorNumbers);
+	}
+
 	private void executeCommand(String[] command) {
 		try {
 			ProcessBuilder pb = new ProcessBuilder(command);
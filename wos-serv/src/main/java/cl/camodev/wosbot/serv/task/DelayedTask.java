@@ -1,5 +1,8 @@
 package cl.camodev.wosbot.serv.task;
 
+import cl.camodev.utiles.Frame;
+import cl.camodev.utiles.FrameDiff;
+import cl.camodev.wosbot.console.enumerable.EnumScreenState;
 import cl.camodev.wosbot.console.enumerable.EnumTemplates;
 import cl.camodev.wosbot.console.enumerable.EnumTpMessageSeverity;
 import cl.camodev.wosbot.console.enumerable.TpDailyTaskEnum;
@@ -9,10 +12,12 @@ import cl.camodev.wosbot.ex.ProfileInReconnectStateException;
 import cl.camodev.wosbot.ot.DTOImageSearchResult;
 import cl.camodev.wosbot.ot.DTOPoint;
 import cl.camodev.wosbot.ot.DTOProfiles;
+import cl.camodev.wosbot.ot.DTOScreenState;
 import cl.camodev.wosbot.serv.impl.ServLogs;
 import cl.camodev.wosbot.serv.impl.ServScheduler;
 import cl.camodev.wosbot.serv.task.impl.InitializeTask;
 import cl.camodev.wosbot.serv.task.impl.WarAcademyTask;
+import org.opencv.core.Mat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,6 +31,11 @@ import java.util.concurrent.TimeUnit;
 public abstract class DelayedTask implements Runnable, Delayed, Comparable<Delayed> {
 
     private static final Logger logger = LoggerFactory.getLogger(DelayedTask.class);
+    private static final long SETTLE_POLL_MS = 100;
+    private static final double SETTLE_MAX_DIFFERENCE = 1.5;
+    private static final int SETTLE_STABLE_SAMPLES = 2;
+    private static final DTOPoint SCREEN_TOP_LEFT = new DTOPoint(0, 0);
+    private static final DTOPoint SCREEN_BOTTOM_RIGHT = new DTOPoint(720, 1280);
 
     protected volatile boolean recurring = true;
     protected LocalDateTime lastExecutionTime;
@@ -75,35 +85,35 @@ public abstract class DelayedTask implements Runnable, Delayed, Comparable<Delay
         EnumStartLocation requiredLocation = getRequiredStartLocation();
 
         for (int attempt = 1; attempt <= 10; attempt++) {
-            DTOImageSearchResult home = emuManager.searchTemplate(EMULATOR_NUMBER, EnumTemplates.GAME_HOME_FURNACE.getTemplate(), 90);
-            DTOImageSearchResult world = emuManager.searchTemplate(EMULATOR_NUMBER, EnumTemplates.GAME_HOME_WORLD.getTemplate(), 90);
-            DTOImageSearchResult reconnect = emuManager.searchTemplate(EMULATOR_NUMBER, EnumTemplates.GAME_HOME_RECONNECT.getTemplate(), 90);
+            // One capture and one classification instead of a search per possible screen
+            DTOScreenState screen;
+            try (Frame frame = captureFrame()) {
+                screen = emuManager.classifyScreen(frame);
+            }
 
-            if (reconnect.isFound()) {
+            if (screen.getState() == EnumScreenState.RECONNECT) {
                 throw new ProfileInReconnectStateException("Profile " + profile.getName() + " is in reconnect state, cannot execute task: " + taskName);
             }
 
-            if (home.isFound() || world.isFound()) {
+            if (screen.getState() == EnumScreenState.HOME || screen.getState() == EnumScreenState.WORLD) {
                 // Found either home or world, now check if we need to navigate to the correct location
-                if (requiredLocation == EnumStartLocation.HOME && !home.isFound()) {
+                if (requiredLocation == EnumStartLocation.HOME && screen.getState() == EnumScreenState.WORLD) {
                     // We need HOME but we're in WORLD, navigate to HOME
-                    emuManager.tapAtPoint(EMULATOR_NUMBER, world.getPoint());
-                    sleepTask(2000); // Wait for navigation
+                    emuManager.tapAtPoint(EMULATOR_NUMBER, screen.getAnchorPoint());
 
                     // Validate that we actually moved to HOME
-                    DTOImageSearchResult homeAfterNav = emuManager.searchTemplate(EMULATOR_NUMBER, EnumTemplates.GAME_HOME_FURNACE.getTemplate(), 90);
+                    DTOImageSearchResult homeAfterNav = waitForTemplate(EnumTemplates.GAME_HOME_FURNACE, 3000);
                     if (!homeAfterNav.isFound()) {
                         logWarning("Failed to navigate to HOME, retrying...");
                         continue; // Try again
                     }
 
-                } else if (requiredLocation == EnumStartLocation.WORLD && !world.isFound()) {
+                } else if (requiredLocation == EnumStartLocation.WORLD && screen.getState() == EnumScreenState.HOME) {
                     // We need WORLD but we're in HOME, navigate to WORLD
-                    emuManager.tapAtPoint(EMULATOR_NUMBER, home.getPoint());
-                    sleepTask(2000); // Wait for navigation
+                    emuManager.tapAtPoint(EMULATOR_NUMBER, screen.getAnchorPoint());
 
                     // Validate that we actually moved to WORLD
-                    DTOImageSearchResult worldAfterNav = emuManager.searchTemplate(EMULATOR_NUMBER, EnumTemplates.GAME_HOME_WORLD.getTemplate(), 90);
+                    DTOImageSearchResult worldAfterNav = waitForTemplate(EnumTemplates.GAME_HOME_WORLD, 3000);
                     if (!worldAfterNav.isFound()) {
                         logWarning("Failed to navigate to WORLD, retrying...");
                         continue; // Try again
@@ -113,6 +123,9 @@ public abstract class DelayedTask implements Runnable, Delayed, Comparable<Delay
 
                 execute();
                 return;
+            } else if (screen.getState() == EnumScreenState.LOADING) {
+                // Pressing back while the game loads would open the exit dialog
+                waitForStableScreen(3000);
             } else {
                 EmulatorManager.getInstance().tapBackButton(EMULATOR_NUMBER);
                 sleepTask(100);
@@ -257,6 +270,101 @@ public abstract class DelayedTask implements Runnable, Delayed, Comparable<Delay
         servLogs.appendLog(EnumTpMessageSeverity.DEBUG, taskName, profile.getName(), message);
     }
 
+    /**
+     * Captures the emulator screen once so several searches or OCR reads can share it.
+     * The returned frame must be closed, preferably with try-with-resources.
+     *
+     * @return the captured frame.
+     */
+    public Frame captureFrame() {
+        return emuManager.captureFrame(EMULATOR_NUMBER);
+    }
+
+    /**
+     * Releases a stale frame and captures a new one. Call it whenever the UI may have changed.
+     *
+     * @param staleFrame The frame to release, may be null.
+     * @return the new frame.
+     */
+    public Frame refreshFrame(Frame staleFrame) {
+        return emuManager.refreshFrame(EMULATOR_NUMBER, staleFrame);
+    }
+
+    /**
+     * Waits until the screen stops changing, comparing downscaled grayscale captures. Use it instead of a
+     * fixed sleep after an action whose result is not a known template.
+     *
+     * @param timeoutMs Maximum time to wait.
+     * @return true if the screen settled, false if it was still changing when the timeout expired.
+     */
+    public boolean waitForStableScreen(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        Mat previous = null;
+        int stableSamples = 0;
+        try {
+            while (true) {
+                Mat current;
+                try (Frame frame = captureFrame()) {
+                    current = FrameDiff.thumbnail(frame, FrameDiff.DEFAULT_DOWNSCALE);
+                }
+                if (previous != null) {
+                    // Two consecutive quiet samples, so a transition that has not started yet is not taken as settled
+                    stableSamples = FrameDiff.meanDifference(previous, current) <= SETTLE_MAX_DIFFERENCE ? stableSamples + 1 : 0;
+                    previous.release();
+                }
+                previous = current;
+
+                if (stableSamples >= SETTLE_STABLE_SAMPLES) {
+                    return true;
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    logger.debug("Screen still changing after {} ms", timeoutMs);
+                    return false;
+                }
+                sleepTask(SETTLE_POLL_MS);
+            }
+        } finally {
+            if (previous != null) {
+                previous.release();
+            }
+        }
+    }
+
+    /**
+     * Polls the whole screen until the template appears or the timeout expires.
+     *
+     * @param template  The template to look for.
+     * @param timeoutMs Maximum time to wait.
+     * @return the last search result, found or not.
+     */
+    public DTOImageSearchResult waitForTemplate(EnumTemplates template, long timeoutMs) {
+        return waitForTemplate(template, SCREEN_TOP_LEFT, SCREEN_BOTTOM_RIGHT, timeoutMs);
+    }
+
+    /**
+     * Polls a region of the screen until the template appears or the timeout expires. A small region
+     * keeps every poll cheap.
+     *
+     * @param template    The template to look for.
+     * @param topLeft     Top-left corner of the region.
+     * @param bottomRight Bottom-right corner of the region.
+     * @param timeoutMs   Maximum time to wait.
+     * @return the last search result, found or not.
+     */
+    public DTOImageSearchResult waitForTemplate(EnumTemplates template, DTOPoint topLeft, DTOPoint bottomRight, long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (true) {
+            DTOImageSearchResult result;
+            try (Frame frame = captureFrame()) {
+                result = emuManager.searchTemplate(frame, template.getTemplate(), topLeft, bottomRight, 90);
+            }
+            if (result.isFound() || System.currentTimeMillis() >= deadline) {
+                return result;
+            }
+            sleepTask(SETTLE_POLL_MS);
+        }
+    }
+
     /**
      * Taps at the specified point on the emulator screen.
      *
@@ -370,6 +370,7 @@ public class TaskQueue {
 
 		// Eliminar todas las tareas pendientes en la cola
 		taskQueue.clear();
+		EmulatorManager.getInstance().untrackEmulator(profile.getEmulatorNumber());
 		ServProfiles.getServices().notifyProfileStatusChange(new DTOProfileStatus(profile.getId(), "NOT RUNNING "));
 		logger.info("TaskQueue stopped immediately for profile " + profile.getName());
 	}
@@ -2,11 +2,8 @@ package cl.camodev.wosbot.serv.task.impl;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import cl.camodev.utiles.OcrDurationParser;
 import cl.camodev.wosbot.console.enumerable.EnumConfigurationKey;
 import cl.camodev.wosbot.console.enumerable.EnumTemplates;
 import cl.camodev.wosbot.console.enumerable.EnumTpMessageSeverity;
@@ -285,28 +282,10 @@ public class BankTask extends DelayedTask {
 	}
 
 	public LocalDateTime parseAndAddToNow(String text) {
-		// Regular expression to match the input format [n]d HH:mm:ss' o 'HH:mm:ss
-		Pattern pattern = Pattern.compile("(?i).*?(?:(\\d+)\\s*d\\D*)?(\\d{1,2}:\\d{2}:\\d{2}).*", Pattern.DOTALL);
-		Matcher matcher = pattern.matcher(text.trim());
-
-		if (!matcher.matches()) {
-			throw new IllegalArgumentException("Input does not match the expected format. Expected format: [n]d HH:mm:ss' o 'HH:mm:ss");
+		long seconds = OcrDurationParser.parseSeconds(text);
+		if (seconds == OcrDurationParser.INVALID) {
+			throw new IllegalArgumentException("Input does not hold a duration: " + text);
 		}
-
-		String daysStr = matcher.group(1);
-		String timeStr = matcher.group(2);
-
-		int daysToAdd = (daysStr != null) ? Integer.parseInt(daysStr) : 0;
-
-		// parser for time part
-		DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("H:mm:ss");
-		LocalTime timePart = LocalTime.parse(timeStr, timeFormatter);
-
-
-		return LocalDateTime.now()
-				.plusDays(daysToAdd)
-				.plusHours(timePart.getHour())
-				.plusMinutes(timePart.getMinute())
-				.plusSeconds(timePart.getSecond());
+		return LocalDateTime.now().plusSeconds(seconds);
 	}
 }
@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import cl.camodev.utiles.OcrProfile;
 import cl.camodev.wosbot.console.enumerable.EnumTemplates;
 import cl.camodev.wosbot.console.enumerable.EnumTpMessageSeverity;
 import cl.camodev.wosbot.console.enumerable.TpDailyTaskEnum;
@@ -167,7 +168,7 @@ public class BeastSlayTask extends DelayedTask {
 						try {
 							// Obtener stamina y tiempo restante via OCR
 
-							String timeText = emuManager.ocrRegionText(EMULATOR_NUMBER, new DTOPoint(519, 1141), new DTOPoint(618, 1164));
+							String timeText = emuManager.ocrRegionText(EMULATOR_NUMBER, new DTOPoint(519, 1141), new DTOPoint(618, 1164), OcrProfile.TIMER);
 							System.out.println("Time remaining: " + timeText);
 
 							timeText = timeText.trim().replaceAll("[^0-9:]", ""); // Solo dejar números y ":"
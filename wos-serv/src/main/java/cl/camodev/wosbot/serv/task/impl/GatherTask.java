@@ -1,5 +1,6 @@
 package cl.camodev.wosbot.serv.task.impl;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 
@@ -37,33 +38,6 @@ public class GatherTask extends DelayedTask {
         this.gatherType = gatherType;
     }
 
-    public static LocalDateTime parseRemaining(String timeStr) {
-        if (timeStr == null) {
-            return LocalDateTime.now();
-        }
-        // Elimina saltos de línea y espacios extra
-        timeStr = timeStr.replaceAll("\\r?\\n", "").trim();
-
-        // Se espera el formato hh:mm:ss
-        String[] parts = timeStr.split(":");
-        if (parts.length != 3) {
-            return LocalDateTime.now();
-        }
-
-        try {
-            int hours = Integer.parseInt(parts[0].trim());
-            int minutes = Integer.parseInt(parts[1].trim());
-            int seconds = Integer.parseInt(parts[2].trim());
-
-            LocalDateTime now = LocalDateTime.now();
-            // Se suma el tiempo parseado al instante actual
-            return now.plusHours(hours).plusMinutes(minutes).plusSeconds(seconds);
-        } catch (NumberFormatException e) {
-            // Si ocurre algún error durante el parseo, se retorna LocalDateTime.now()
-            return LocalDateTime.now().plusMinutes(3);
-        }
-    }
-
     @Override
     protected void execute() {
         // If IntelligenceTask remaining minutes is less than 60, we will wait until it is processed
@@ -115,9 +89,9 @@ public class GatherTask extends DelayedTask {
                 int index = obtenerIndice(resource.getPoint());
                 if (index != -1) {
                     try {
-                        String time = emuManager.ocrRegionText(EMULATOR_NUMBER, queues[index][2],
+                        Duration remaining = emuManager.ocrRegionDuration(EMULATOR_NUMBER, queues[index][2],
                                 new DTOPoint(queues[index][2].getX() + 140, queues[index][2].getY() + 19));
-                        LocalDateTime nextSchedule = parseRemaining(time).plusMinutes(2);
+                        LocalDateTime nextSchedule = (remaining != null ? LocalDateTime.now().plus(remaining) : LocalDateTime.now()).plusMinutes(2);
                         this.reschedule(nextSchedule);
                     } catch (Exception e) {
 
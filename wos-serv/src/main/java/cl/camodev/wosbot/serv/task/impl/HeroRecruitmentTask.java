@@ -1,5 +1,6 @@
 package cl.camodev.wosbot.serv.task.impl;
 
+import cl.camodev.utiles.OcrDurationParser;
 import cl.camodev.wosbot.console.enumerable.EnumTemplates;
 import cl.camodev.wosbot.console.enumerable.TpDailyTaskEnum;
 import cl.camodev.wosbot.ot.DTOImageSearchResult;
@@ -10,10 +11,6 @@ import net.sourceforge.tess4j.TesseractException;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class HeroRecruitmentTask extends DelayedTask {
 
@@ -112,30 +109,11 @@ public class HeroRecruitmentTask extends DelayedTask {
     }
 
     public LocalDateTime parseNextFree(String input) {
-        // Regular expression to match the input format [n]d HH:mm:ss' o 'HH:mm:ss
-        Pattern pattern = Pattern.compile("(?i).*?(?:(\\d+)\\s*d\\s*)?(\\d{1,2}:\\d{2}:\\d{2}).*", Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(input.trim());
-
-        if (!matcher.matches()) {
-            throw new IllegalArgumentException("Input does not match the expected format. Expected format: [n]d HH:mm:ss' o 'HH:mm:ss");
+        long seconds = OcrDurationParser.parseSeconds(input);
+        if (seconds == OcrDurationParser.INVALID) {
+            throw new IllegalArgumentException("Input does not hold a duration: " + input);
         }
-
-
-        String daysStr = matcher.group(1);   // optional, can be null
-        String timeStr = matcher.group(2);   // always present
-
-        int daysToAdd = (daysStr != null) ? Integer.parseInt(daysStr) : 0;
-
-        // parser for time part
-        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("H:mm:ss");
-        LocalTime timePart = LocalTime.parse(timeStr, timeFormatter);
-
-
-        return LocalDateTime.now()
-                .plusDays(daysToAdd)
-                .plusHours(timePart.getHour())
-                .plusMinutes(timePart.getMinute())
-                .plusSeconds(timePart.getSecond());
+        return LocalDateTime.now().plusSeconds(seconds);
     }
 
     @Override
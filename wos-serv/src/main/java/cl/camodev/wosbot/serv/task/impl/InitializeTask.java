@@ -1,13 +1,14 @@
 package cl.camodev.wosbot.serv.task.impl;
 
-import cl.camodev.wosbot.console.enumerable.EnumTemplates;
+import cl.camodev.utiles.Frame;
+import cl.camodev.wosbot.console.enumerable.EnumScreenState;
 import cl.camodev.wosbot.console.enumerable.EnumTpMessageSeverity;
 import cl.camodev.wosbot.console.enumerable.TpDailyTaskEnum;
 import cl.camodev.wosbot.emulator.EmulatorManager;
 import cl.camodev.wosbot.ex.ProfileInReconnectStateException;
 import cl.camodev.wosbot.ex.StopExecutionException;
-import cl.camodev.wosbot.ot.DTOImageSearchResult;
 import cl.camodev.wosbot.ot.DTOProfiles;
+import cl.camodev.wosbot.ot.DTOScreenState;
 import cl.camodev.wosbot.serv.impl.ServLogs;
 import cl.camodev.wosbot.serv.task.DelayedTask;
 
@@ -51,17 +52,18 @@ public class InitializeTask extends DelayedTask {
 			boolean homeScreen = false;
 			int attempts = 0;
 			while (attempts <= MAX_ATTEMPTS) {
-				DTOImageSearchResult home = emuManager.searchTemplate(EMULATOR_NUMBER, EnumTemplates.GAME_HOME_FURNACE.getTemplate(), 90);
-				DTOImageSearchResult world = emuManager.searchTemplate(EMULATOR_NUMBER, EnumTemplates.GAME_HOME_WORLD.getTemplate(), 90);
+				DTOScreenState screen;
+				try (Frame frame = captureFrame()) {
+					screen = emuManager.classifyScreen(frame);
+				}
 
-				if (home.isFound() || world.isFound()) {
+				if (screen.getState() == EnumScreenState.HOME || screen.getState() == EnumScreenState.WORLD) {
 					homeScreen = true;
 					ServLogs.getServices().appendLog(EnumTpMessageSeverity.INFO, taskName, profile.getName(), "home screen found");
 					break;
 				}
 
-				DTOImageSearchResult reconnect = emuManager.searchTemplate(EMULATOR_NUMBER, EnumTemplates.GAME_HOME_RECONNECT.getTemplate(), 90);
-				if (reconnect.isFound()) {
+				if (screen.getState() == EnumScreenState.RECONNECT) {
 					throw new ProfileInReconnectStateException("Profile " + profile.getName() + " is in reconnect state, cannot execute task: " + taskName);
 				}
 
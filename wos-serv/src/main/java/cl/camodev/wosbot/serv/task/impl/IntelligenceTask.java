@@ -5,9 +5,8 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import cl.camodev.utiles.OcrDurationParser;
 import cl.camodev.wosbot.almac.entity.DailyTask;
 import cl.camodev.wosbot.almac.repo.DailyTaskRepository;
 import cl.camodev.wosbot.almac.repo.IDailyTaskRepository;
@@ -367,23 +366,8 @@ public class IntelligenceTask extends DelayedTask {
 	}
 
 	public LocalDateTime parseAndAddTime(String ocrText) {
-		// Expresión regular para capturar el tiempo en formato HH:mm:ss
-		Pattern pattern = Pattern.compile("(\\d{1,2}):(\\d{1,2}):(\\d{1,2})");
-		Matcher matcher = pattern.matcher(ocrText);
-
-		if (matcher.find()) {
-			try {
-				int hours = Integer.parseInt(matcher.group(1));
-				int minutes = Integer.parseInt(matcher.group(2));
-				int seconds = Integer.parseInt(matcher.group(3));
-
-				return LocalDateTime.now().plus(hours, ChronoUnit.HOURS).plus(minutes, ChronoUnit.MINUTES).plus(seconds, ChronoUnit.SECONDS);
-			} catch (NumberFormatException e) {
-				e.printStackTrace();
-			}
-		}
-
-		return LocalDateTime.now();
+		long seconds = OcrDurationParser.parseSeconds(ocrText);
+		return seconds == OcrDurationParser.INVALID ? LocalDateTime.now() : LocalDateTime.now().plusSeconds(seconds);
 	}
 
 	private long isGatherTaskReadyForIntelligence() {
@@ -72,14 +72,9 @@ public class MysteryShopTask extends DelayedTask {
 
 		// Tap on shop button
 		emuManager.tapAtRandomPoint(EMULATOR_NUMBER, shopButtonResult.getPoint(), shopButtonResult.getPoint());
-		sleepTask(1000);
 
 		// STEP 2: Search for mystery shop within the shop menu
-		DTOImageSearchResult mysteryShopResult = emuManager.searchTemplate(
-			EMULATOR_NUMBER,
-			EnumTemplates.SHOP_MYSTERY_BUTTON.getTemplate(),
-			 90
-		);
+		DTOImageSearchResult mysteryShopResult = waitForTemplate(EnumTemplates.SHOP_MYSTERY_BUTTON, 3000);
 
 		if (!mysteryShopResult.isFound()) {
 			logWarning("Mystery shop button not found, rescheduling task for 1 hour");
@@ -91,7 +86,7 @@ public class MysteryShopTask extends DelayedTask {
 
 		// Tap on mystery shop
 		emuManager.tapAtRandomPoint(EMULATOR_NUMBER, mysteryShopResult.getPoint(), mysteryShopResult.getPoint());
-		sleepTask(1000);
+		waitForStableScreen(2000);
 		return true;
 	}
 
@@ -103,7 +98,7 @@ public class MysteryShopTask extends DelayedTask {
 		DTOPoint scrollStart = new DTOPoint(350, 1100);
 		DTOPoint scrollEnd = new DTOPoint(350, 650);
 		emuManager.executeSwipe(EMULATOR_NUMBER, scrollStart, scrollEnd);
-		sleepTask(500);
+		waitForStableScreen(1500);
 
 		// STEP 4: Process free rewards and daily refresh in a loop
 		boolean foundFreeRewards = true;
@@ -186,8 +181,8 @@ public class MysteryShopTask extends DelayedTask {
 				foundAnyReward = true;
 				foundRewardInThisIteration = true;
 
-				// Wait a bit before searching for the next reward
-				sleepTask(1000);
+				// Wait for the claim animation to finish before searching for the next reward
+				waitForStableScreen(2000);
 			}
 		}
 
@@ -1,5 +1,6 @@
 package cl.camodev.wosbot.serv.task.impl;
 
+import cl.camodev.utiles.Frame;
 import cl.camodev.utiles.UtilTime;
 import cl.camodev.wosbot.console.enumerable.EnumConfigurationKey;
 import cl.camodev.wosbot.console.enumerable.EnumTemplates;
@@ -7,13 +8,15 @@ import cl.camodev.wosbot.console.enumerable.TpDailyTaskEnum;
 import cl.camodev.wosbot.ot.DTOImageSearchResult;
 import cl.camodev.wosbot.ot.DTOPoint;
 import cl.camodev.wosbot.ot.DTOProfiles;
+import cl.camodev.wosbot.ot.DTOTemplateSearchResult;
 import cl.camodev.wosbot.serv.task.DelayedTask;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 public class NomadicMerchantTask extends DelayedTask {
 
-    private final EnumTemplates[] TEMPLATES = {EnumTemplates.NOMADIC_MERCHANT_COAL, EnumTemplates.NOMADIC_MERCHANT_MEAT, EnumTemplates.NOMADIC_MERCHANT_STONE, EnumTemplates.NOMADIC_MERCHANT_WOOD};
+    private final List<EnumTemplates> TEMPLATES = List.of(EnumTemplates.NOMADIC_MERCHANT_COAL, EnumTemplates.NOMADIC_MERCHANT_MEAT, EnumTemplates.NOMADIC_MERCHANT_STONE, EnumTemplates.NOMADIC_MERCHANT_WOOD);
 
 
     public NomadicMerchantTask(DTOProfiles profile, TpDailyTaskEnum tpDailyTask) {
@@ -51,25 +54,18 @@ public class NomadicMerchantTask extends DelayedTask {
             logInfo("Starting resource  search phase");
 
             while (foundResourceTemplate) {
-                foundResourceTemplate = false;
-
-                // Iterate through each resource template
-                for (EnumTemplates template : TEMPLATES) {
-                    DTOImageSearchResult result = emuManager.searchTemplate(
-                            EMULATOR_NUMBER,
-                            template.getTemplate(),
-                            new DTOPoint(25,412),
-                            new DTOPoint(690,1200),
-                            90
-                    );
-
-                    if (result.isFound()) {
-                        logInfo("Found resource template: " + template.name() + ", purchasing");
-                        tapPoint(result.getPoint());
-                        sleepTask(300);
-                        foundResourceTemplate = true;
-                        break; // Restart resource search from beginning
-                    }
+                // Match every resource template on a single capture, keeping the first one in list order
+                DTOTemplateSearchResult result;
+                try (Frame frame = captureFrame()) {
+                    result = emuManager.searchFirstTemplate(frame, TEMPLATES, new DTOPoint(25, 412), new DTOPoint(690, 1200), 90);
+                }
+
+                foundResourceTemplate = result.isFound();
+                if (foundResourceTemplate) {
+                    logInfo("Found resource template: " + result.getTemplate().name() + ", purchasing");
+                    tapPoint(result.getPoint());
+                    sleepTask(300);
+                    // Restart resource search from beginning
                 }
             }
 
@@ -45,9 +45,8 @@ public class PetAdventureChestTask extends DelayedTask {
 			if (petsResult.isFound()) {
 				ServLogs.getServices().appendLog(EnumTpMessageSeverity.INFO, taskName, profile.getName(), "button pets found, taping");
 				emuManager.tapAtRandomPoint(EMULATOR_NUMBER, petsResult.getPoint(), petsResult.getPoint());
-				sleepTask(3000);
 
-				DTOImageSearchResult beastCageResult = emuManager.searchTemplate(EMULATOR_NUMBER, EnumTemplates.PETS_BEAST_CAGE.getTemplate(), 90);
+				DTOImageSearchResult beastCageResult = waitForTemplate(EnumTemplates.PETS_BEAST_CAGE, 3000);
 				if (beastCageResult.isFound()) {
 					emuManager.tapAtPoint(EMULATOR_NUMBER, beastCageResult.getPoint());
 					sleepTask(500);
@@ -2,6 +2,7 @@ package cl.camodev.wosbot.serv.task.impl;
 
 import java.time.LocalDateTime;
 
+import cl.camodev.utiles.OcrDurationParser;
 import cl.camodev.wosbot.console.enumerable.EnumTemplates;
 import cl.camodev.wosbot.console.enumerable.EnumTpMessageSeverity;
 import cl.camodev.wosbot.console.enumerable.TpDailyTaskEnum;
@@ -77,7 +78,7 @@ public class PetSkillsTask extends DelayedTask {
 					servLogs.appendLog(EnumTpMessageSeverity.INFO, taskName, profile.getName(), "getting next schedule for " + petSkill.name());
 					String nextSchedulteText = EmulatorManager.getInstance().ocrRegionText(EMULATOR_NUMBER, new DTOPoint(210, 1080), new DTOPoint(520, 1105));
 					LocalDateTime nextSchedule = parseCooldown(nextSchedulteText);
-					this.reschedule(parseCooldown(nextSchedulteText));
+					this.reschedule(nextSchedule);
 					ServScheduler.getServices().updateDailyTaskStatus(profile, tpTask, nextSchedule);
 				} catch (Exception e) {
 					e.printStackTrace();
@@ -101,41 +102,12 @@ public class PetSkillsTask extends DelayedTask {
 			throw new IllegalArgumentException("Formato inválido: " + input);
 		}
 
-		try {
-
-			String timePart = input.substring(input.toLowerCase().indexOf("on cooldown:") + 12).trim();
-
-			timePart = timePart.replaceAll("\\s+", "").replaceAll("[Oo]", "0").replaceAll("[lI]", "1").replaceAll("[S]", "5").replaceAll("[B]", "8").replaceAll("[Z]", "2").replaceAll("[^0-9d:]", "");
-
-			int days = 0, hours = 0, minutes = 0, seconds = 0;
-
-			if (timePart.contains("d")) {
-				String[] daySplit = timePart.split("d", 2);
-				days = parseNumber(daySplit[0]); // Extrae los días
-				timePart = daySplit[1]; // Resto del string sin los días
-			}
-
-			String[] parts = timePart.split(":");
-			if (parts.length == 3) { // Caso estándar hh:mm:ss
-				hours = parseNumber(parts[0]);
-				minutes = parseNumber(parts[1]);
-				seconds = parseNumber(parts[2]);
-			} else {
-				throw new IllegalArgumentException("Formato de tiempo incorrecto: " + timePart);
-			}
-
-			return LocalDateTime.now().plusDays(days).plusHours(hours).plusMinutes(minutes).plusSeconds(seconds);
-		} catch (Exception e) {
-			throw new RuntimeException("Error al procesar el cooldown: " + input, e);
-		}
-	}
-
-	private int parseNumber(String number) {
-		try {
-			return Integer.parseInt(number.trim());
-		} catch (NumberFormatException e) {
-			return 0;
+		String timePart = input.substring(input.toLowerCase().indexOf("on cooldown:") + 12);
+		long seconds = OcrDurationParser.parseSeconds(timePart);
+		if (seconds == OcrDurationParser.INVALID) {
+			throw new IllegalArgumentException("Formato de tiempo incorrecto: " + timePart);
 		}
+		return LocalDateTime.now().plusSeconds(seconds);
 	}
 
 	//@formatter:off
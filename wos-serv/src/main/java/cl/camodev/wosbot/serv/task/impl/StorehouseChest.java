@@ -2,10 +2,8 @@ package cl.camodev.wosbot.serv.task.impl;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 
+import cl.camodev.utiles.OcrDurationParser;
 import cl.camodev.utiles.UtilTime;
 import cl.camodev.wosbot.console.enumerable.EnumTemplates;
 import cl.camodev.wosbot.console.enumerable.EnumTpMessageSeverity;
@@ -31,20 +29,13 @@ public class StorehouseChest extends DelayedTask {
 	public static LocalDateTime parseNextReward(String ocrTime) {
 		LocalDateTime now = LocalDateTime.now();
 
-		if (ocrTime == null || ocrTime.isEmpty()) {
-			return now;
-		}
-
-		// Corrección de errores OCR comunes
-		String correctedTime = ocrTime.replaceAll("[Oo]", "0").replaceAll("[lI]", "1").replaceAll("S", "5").replaceAll("[^0-9:]", "");
-
-		try {
-			LocalTime parsedTime = LocalTime.parse(correctedTime, DateTimeFormatter.ofPattern("HH:mm:ss"));
-			return now.plusHours(parsedTime.getHour()).plusMinutes(parsedTime.getMinute()).plusSeconds(parsedTime.getSecond());
-		} catch (DateTimeParseException e) {
-			System.err.println("Error al parsear la hora: " + correctedTime);
+		// OcrDurationParser ya corrige los errores OCR comunes (O por 0, l por 1, S por 5...)
+		long seconds = OcrDurationParser.parseSeconds(ocrTime);
+		if (seconds == OcrDurationParser.INVALID) {
+			System.err.println("Error al parsear la hora: " + ocrTime);
 			return now;
 		}
+		return now.plusSeconds(seconds);
 	}
 
 	@Override
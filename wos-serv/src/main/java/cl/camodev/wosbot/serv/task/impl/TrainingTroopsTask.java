@@ -1,5 +1,7 @@
 package cl.camodev.wosbot.serv.task.impl;
 
+import cl.camodev.utiles.OcrDurationParser;
+import cl.camodev.utiles.OcrProfile;
 import cl.camodev.wosbot.console.enumerable.EnumConfigurationKey;
 import cl.camodev.wosbot.console.enumerable.EnumTemplates;
 import cl.camodev.wosbot.console.enumerable.EnumTpMessageSeverity;
@@ -15,13 +17,9 @@ import net.sourceforge.tess4j.TesseractException;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Task responsible for managing troop training operations in the game.
@@ -52,31 +50,15 @@ public class TrainingTroopsTask extends DelayedTask {
     /**
      * Parse time string and add it to the current LocalDateTime
      * @param baseTime Base time to add to (unused but kept for method signature compatibility)
-     * @param timeString Time string in format "[n]d HH:mm:ss"
+     * @param timeString OCR text holding a duration, as parsed by {@link OcrDurationParser}
      * @return LocalDateTime with the parsed time added
      */
     public static LocalDateTime addTimeToLocalDateTime(LocalDateTime baseTime, String timeString) {
-        Pattern pattern = Pattern.compile("(?i).*?(?:(\\d+)\\s*d\\s*)?(\\d{1,2}:\\d{2}:\\d{2}).*", Pattern.DOTALL);
-        Matcher matcher = pattern.matcher(timeString.trim());
-
-        if (!matcher.matches()) {
-            throw new IllegalArgumentException("Time string does not match expected format [n]d HH:mm:ss: " + timeString);
+        long seconds = OcrDurationParser.parseSeconds(timeString);
+        if (seconds == OcrDurationParser.INVALID) {
+            throw new IllegalArgumentException("Time string does not hold a duration: " + timeString);
         }
-
-        String daysStr = matcher.group(1);   // Optional days component
-        String timeStr = matcher.group(2);   // Required time component
-
-        int daysToAdd = (daysStr != null) ? Integer.parseInt(daysStr) : 0;
-
-        // Parse time component
-        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("H:mm:ss");
-        LocalTime timePart = LocalTime.parse(timeStr, timeFormatter);
-
-        return LocalDateTime.now()
-                .plusDays(daysToAdd)
-                .plusHours(timePart.getHour())
-                .plusMinutes(timePart.getMinute())
-                .plusSeconds(timePart.getSecond());
+        return LocalDateTime.now().plusSeconds(seconds);
     }
 
     @Override
@@ -118,7 +100,7 @@ public class TrainingTroopsTask extends DelayedTask {
                 logInfo("Attempting to read troop status - Attempt " + attempt);
 
                 DTOPoint[] points = getTroopsPoints(troopType);
-                String rawText = emuManager.ocrRegionText(EMULATOR_NUMBER, points[0], points[1]);
+                String rawText = emuManager.ocrRegionText(EMULATOR_NUMBER, points[0], points[1], OcrProfile.STATUS_WORD);
 
                 if (handleTroopStatus(rawText, troopsResult)) {
                     return; // Status handled successfully, exit
@@ -0,0 +1,132 @@
+package cl.camodev.utiles;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * A decoded template held by the {@link ImageSearchUtil} cache.
+ * <p>
+ * The BGR image and its grayscale variant are converted once at load time and then shared by every
+ * search, on every thread, without copying. Callers must treat both Mats as read-only and must never
+ * release them: the cache owns their native memory.
+ * <p>
+ * Downscaled copies used by pyramid matching are built on first use and cached with the template.
+ */
+public final class CachedTemplate {
+
+	/** Smallest side, in pixels, a downscaled template may have and still match reliably. */
+	private static final int MIN_SCALED_SIDE = 16;
+
+	private final String path;
+	private final Mat bgr;
+	private final Mat gray;
+	private final int width;
+	private final int height;
+	private final long sizeInBytes;
+	private final ConcurrentHashMap<Integer, Mat> scaled = new ConcurrentHashMap<>();
+	private final TemplateFingerprint fingerprint;
+
+	CachedTemplate(String path, Mat bgr) {
+		this(path, bgr, toGray(bgr));
+	}
+
+	/**
+	 * @param path template path
+	 * @param bgr  template in BGR
+	 * @param gray the same template in 8-bit grayscale
+	 */
+	CachedTemplate(String path, Mat bgr, Mat gray) {
+		this.path = path;
+		this.bgr = bgr;
+		this.gray = gray;
+		this.width = bgr.cols();
+		this.height = bgr.rows();
+		this.sizeInBytes = bgr.total() * bgr.elemSize() + gray.total() * gray.elemSize();
+		this.fingerprint = new TemplateFingerprint(bgr);
+	}
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the template in BGR, shared and read-only
+	 */
+	public Mat getBgr() {
+		return bgr;
+	}
+
+	/**
+	 * @return the template in 8-bit grayscale, shared and read-only
+	 */
+	public Mat getGray() {
+		return gray;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * @return native memory used by both variants and the downscaled copies built so far
+	 */
+	public long getSizeInBytes() {
+		long total = sizeInBytes;
+		for (Mat mat : scaled.values()) {
+			total += mat.total() * mat.elemSize();
+		}
+		return total;
+	}
+
+	/**
+	 * Largest pyramid factor, 4 or 2, that keeps both sides of the downscaled template at least
+	 * {@value #MIN_SCALED_SIDE} pixels long. Small icons get 1, meaning full resolution only.
+	 */
+	public int getDefaultPyramidFactor() {
+		for (int factor = 4; factor > 1; factor /= 2) {
+			if (Math.min(width, height) / factor >= MIN_SCALED_SIDE) {
+				return factor;
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * @param factor divisor applied to both sides
+	 * @return the BGR template downscaled by {@code factor}, shared and read-only
+	 */
+	public Mat getScaledBgr(int factor) {
+		if (factor <= 1) {
+			return bgr;
+		}
+		return scaled.computeIfAbsent(factor, f -> {
+			Mat small = new Mat();
+			Imgproc.resize(bgr, small, new Size(Math.max(1, width / f), Math.max(1, height / f)), 0, 0, Imgproc.INTER_AREA);
+			return small;
+		});
+	}
+
+	private static Mat toGray(Mat bgr) {
+		Mat gray = new Mat();
+		PixelConverter.bgrToGray(bgr, gray);
+		return gray;
+	}
+
+	TemplateFingerprint getFingerprint() {
+		return fingerprint;
+	}
+
+	void release() {
+		bgr.release();
+		gray.release();
+		scaled.values().forEach(Mat::release);
+		scaled.clear();
+	}
+}
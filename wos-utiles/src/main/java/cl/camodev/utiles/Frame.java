@@ -0,0 +1,210 @@
+package cl.camodev.utiles;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.core.Rect;
+import org.opencv.imgcodecs.Imgcodecs;
+
+/**
+ * Snapshot of an emulator screen decoded once into an OpenCV {@link Mat} (BGR, 8 bits per channel).
+ * <p>
+ * A frame is meant to be shared by several template searches and OCR reads that run against the same
+ * screen state, so the capture and decode cost is paid only once. The underlying image must be treated
+ * as read-only. When the UI may have changed, the caller captures a new frame instead of reusing this one.
+ * <p>
+ * Frames hold native memory: the owner must {@link #close()} them, ideally with try-with-resources.
+ */
+public final class Frame implements AutoCloseable {
+
+	private final Mat image;
+	private final Consumer<Mat> recycler;
+	private final long captureTimeMillis;
+	private volatile boolean released = false;
+	private volatile MatchMemo matchMemo;
+	// Pixel hashes per ROI, shared by every search on this frame
+	private final ConcurrentHashMap<Rect, Long> regionHashes = new ConcurrentHashMap<>(4);
+
+	private Frame(Mat image, Consumer<Mat> recycler) {
+		this.image = image;
+		this.recycler = recycler;
+		this.captureTimeMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * Decodes a PNG (or any format supported by OpenCV) screenshot into a new frame.
+	 *
+	 * @param encodedImage encoded image bytes
+	 * @return the decoded frame
+	 * @throws IllegalArgumentException if the bytes could not be decoded
+	 */
+	public static Frame fromEncoded(byte[] encodedImage) {
+		if (encodedImage == null || encodedImage.length == 0) {
+			throw new IllegalArgumentException("Cannot create a frame from an empty image");
+		}
+		MatOfByte matOfByte = new MatOfByte(encodedImage);
+		try {
+			Mat decoded = Imgcodecs.imdecode(matOfByte, Imgcodecs.IMREAD_COLOR);
+			if (decoded.empty()) {
+				decoded.release();
+				throw new IllegalArgumentException("Could not decode screenshot");
+			}
+			return new Frame(decoded, null);
+		} finally {
+			matOfByte.release();
+		}
+	}
+
+	/**
+	 * Wraps an already decoded BGR image. The frame takes ownership of the {@link Mat} and releases it on close.
+	 *
+	 * @param bgrImage decoded BGR image
+	 * @return the frame
+	 */
+	public static Frame fromMat(Mat bgrImage) {
+		return fromMat(bgrImage, null);
+	}
+
+	/**
+	 * Wraps an already decoded BGR image whose buffer is handed to {@code recycler} on close instead of
+	 * being released, so capture paths can reuse their native buffers.
+	 *
+	 * @param bgrImage decoded BGR image
+	 * @param recycler receives the image when the frame is closed, may be null to release it
+	 * @return the frame
+	 */
+	public static Frame fromMat(Mat bgrImage, Consumer<Mat> recycler) {
+		if (bgrImage == null || bgrImage.empty()) {
+			throw new IllegalArgumentException("Cannot create a frame from an empty Mat");
+		}
+		return new Frame(bgrImage, recycler);
+	}
+
+	/**
+	 * Returns the decoded image. Callers must not modify or release it.
+	 */
+	public Mat getMat() {
+		if (released) {
+			throw new IllegalStateException("Frame has already been released");
+		}
+		return image;
+	}
+
+	public int getWidth() {
+		return getMat().cols();
+	}
+
+	public int getHeight() {
+		return getMat().rows();
+	}
+
+	public long getCaptureTimeMillis() {
+		return captureTimeMillis;
+	}
+
+	/**
+	 * @return milliseconds elapsed since this frame was captured
+	 */
+	public long getAgeMillis() {
+		return System.currentTimeMillis() - captureTimeMillis;
+	}
+
+	public boolean isReleased() {
+		return released;
+	}
+
+	/**
+	 * Attaches the memo consulted by best-match searches on this frame, usually the one of the profile that
+	 * captured it.
+	 *
+	 * @param matchMemo memo to use, or null to always run the match
+	 */
+	public void setMatchMemo(MatchMemo matchMemo) {
+		this.matchMemo = matchMemo;
+	}
+
+	public MatchMemo getMatchMemo() {
+		return matchMemo;
+	}
+
+	/**
+	 * Hashes the pixels of a region once per frame, however many templates are searched in it.
+	 */
+	long getRegionHash(Rect roi, MatchMemo memo) {
+		return regionHashes.computeIfAbsent(roi, r -> memo.hashRegion(getMat(), r));
+	}
+
+	/**
+	 * Copies a region of the frame into a {@link BufferedImage} of type {@link BufferedImage#TYPE_3BYTE_BGR}.
+	 *
+	 * @param x      left coordinate
+	 * @param y      top coordinate
+	 * @param width  region width
+	 * @param height region height
+	 * @return the cropped image
+	 */
+	public BufferedImage toBufferedImage(int x, int y, int width, int height) {
+		Mat source = getMat();
+		if (x < 0 || y < 0 || width <= 0 || height <= 0 || x + width > source.cols() || y + height > source.rows()) {
+			throw new IllegalArgumentException("Region exceeds frame dimensions");
+		}
+		Mat region = new Mat(source, new Rect(x, y, width, height));
+		Mat continuous = region.clone();
+		try {
+			BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+			byte[] target = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+			continuous.get(0, 0, target);
+			return image;
+		} finally {
+			region.release();
+			continuous.release();
+		}
+	}
+
+	/**
+	 * Returns a view of a region of the frame, sharing its pixels. The caller releases the view, which does not
+	 * free the frame's memory, and must not modify it.
+	 *
+	 * @param x      left coordinate
+	 * @param y      top coordinate
+	 * @param width  region width
+	 * @param height region height
+	 * @return the region as a submat
+	 */
+	public Mat region(int x, int y, int width, int height) {
+		Mat source = getMat();
+		if (x < 0 || y < 0 || width <= 0 || height <= 0 || x + width > source.cols() || y + height > source.rows()) {
+			throw new IllegalArgumentException("Region exceeds frame dimensions");
+		}
+		return source.submat(new Rect(x, y, width, height));
+	}
+
+	/**
+	 * Encodes the frame as PNG. Intended for debug dumps only.
+	 */
+	public byte[] toPng() {
+		MatOfByte buffer = new MatOfByte();
+		try {
+			Imgcodecs.imencode(".png", getMat(), buffer);
+			return buffer.toArray();
+		} finally {
+			buffer.release();
+		}
+	}
+
+	@Override
+	public void close() {
+		if (!released) {
+			released = true;
+			if (recycler != null) {
+				recycler.accept(image);
+			} else {
+				image.release();
+			}
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package cl.camodev.utiles;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Cheap change detection between consecutive frames.
+ * <p>
+ * Frames are reduced to small grayscale thumbnails, so comparing two screens costs a few thousand
+ * pixel operations and small animations (snow, glowing buttons) are averaged out.
+ */
+public final class FrameDiff {
+
+	/** Default divisor applied to both frame dimensions when building thumbnails. */
+	public static final int DEFAULT_DOWNSCALE = 8;
+
+	private FrameDiff() {
+	}
+
+	/**
+	 * Builds a downscaled grayscale copy of the frame. The caller owns the returned Mat.
+	 *
+	 * @param frame     source frame
+	 * @param downscale divisor applied to width and height
+	 * @return grayscale thumbnail
+	 */
+	public static Mat thumbnail(Frame frame, int downscale) {
+		Mat source = frame.getMat();
+		Mat small = new Mat();
+		Mat gray = new Mat();
+		try {
+			Imgproc.resize(source, small, new Size(Math.max(1, source.cols() / downscale), Math.max(1, source.rows() / downscale)), 0, 0, Imgproc.INTER_AREA);
+			Imgproc.cvtColor(small, gray, Imgproc.COLOR_BGR2GRAY);
+			return gray;
+		} finally {
+			small.release();
+		}
+	}
+
+	/**
+	 * Mean absolute difference between two thumbnails of the same size, from 0 (identical) to 255.
+	 *
+	 * @param previous earlier thumbnail
+	 * @param current  later thumbnail
+	 * @return mean per-pixel difference, or 255 if the sizes do not match
+	 */
+	public static double meanDifference(Mat previous, Mat current) {
+		if (previous.size().width != current.size().width || previous.size().height != current.size().height) {
+			return 255;
+		}
+		Mat diff = new Mat();
+		try {
+			Core.absdiff(previous, current, diff);
+			return Core.mean(diff).val[0];
+		} finally {
+			diff.release();
+		}
+	}
+}
@@ -0,0 +1,482 @@
+package cl.camodev.utiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads countdowns such as {@code 02:03:04} or {@code 1d 02:03:04} by matching each character against a small
+ * atlas of glyphs, without Tesseract.
+ * <p>
+ * The game draws timers in a fixed font, so once a glyph has been seen it can be recognized by shape alone.
+ * Characters are segmented by column projection after an Otsu threshold, scaled to a
+ * {@value #GLYPH_WIDTH}x{@value #GLYPH_HEIGHT} grid relative to the text line and compared with the atlas.
+ * <p>
+ * The atlas is learned from Tesseract: when a fallback read gives exactly one timer character per segmented
+ * glyph, each glyph becomes a candidate for that character. A single read is never trusted, since Tesseract
+ * can misread an {@code 8} as a {@code 6} just as plausibly: a candidate only becomes a sample once
+ * {@value #CONFIRMATIONS} reads have given it the same character, and it is dropped as soon as one read gives
+ * it another. Samples already learned are checked against Tesseract from time to time, and
+ * {@link #correct(Mat, String)} evicts any that Tesseract contradicts, so a bad sample is relearned instead
+ * of being trusted forever.
+ * <p>
+ * Samples are persisted to {@value #GLYPHS_FILE} in the working directory, so the recognizer only depends on
+ * Tesseract until every character has been learned.
+ */
+public final class GlyphRecognizer {
+
+	private static final Logger logger = LoggerFactory.getLogger(GlyphRecognizer.class);
+	private static final String GLYPHS_FILE = "ocr-glyphs.properties";
+
+	/** Characters the recognizer knows about. */
+	public static final String ALPHABET = "0123456789:d";
+	// Until all of these have been learned, an unseen digit could pass for a known one
+	private static final String REQUIRED = "0123456789:";
+
+	private static final int GLYPH_WIDTH = 10;
+	private static final int GLYPH_HEIGHT = 14;
+	private static final int MAX_SAMPLES_PER_CHAR = 4;
+	private static final int CONFIRMATIONS = 3;
+	private static final int MAX_CANDIDATES = 64;
+	private static final double NOVEL_SAMPLE_SIMILARITY = 0.97;
+	private static final double ASPECT_WEIGHT = 0.5;
+	private static final double MIN_MARGIN = 0.1;
+	private static final double SPACE_GAP = 0.4;
+
+	/**
+	 * Result of a read.
+	 *
+	 * @param text       characters recognized, with a space where the gap between glyphs is wide
+	 * @param duration   the countdown, or null if the text is not one
+	 * @param confidence from 0 to 1, the similarity of the least certain glyph; 0 if nothing could be read
+	 */
+	public record Reading(String text, Duration duration, double confidence) {
+	}
+
+	private record Glyph(byte[] cells, float aspect, int gapBefore) {
+	}
+
+	private record Segmentation(List<Glyph> glyphs, int lineHeight) {
+	}
+
+	private record Match(char character, Glyph sample, double score, double second) {
+	}
+
+	// A shape seen in Tesseract reads but not trusted yet, with the number of reads that agreed on it
+	private record Candidate(char character, Glyph glyph, int confirmations) {
+	}
+
+	private final Path file;
+	// Replaced as a whole on every change, readers never lock
+	private volatile Map<Character, List<Glyph>> atlas = Map.of();
+	// Oldest first, guarded by this
+	private final List<Candidate> candidates = new ArrayList<>();
+
+	GlyphRecognizer() {
+		this(Paths.get(GLYPHS_FILE));
+	}
+
+	GlyphRecognizer(Path file) {
+		this.file = file;
+		load();
+	}
+
+	/**
+	 * Recognizes the timer in a grayscale region.
+	 *
+	 * @param gray CV_8UC1 region holding only the timer
+	 * @return the reading; its confidence is 0 when the atlas is not ready or the text is not a countdown
+	 */
+	public Reading recognize(Mat gray) {
+		Map<Character, List<Glyph>> known = atlas;
+		Segmentation segmentation = segment(gray);
+		if (!isReady(known) || segmentation.glyphs().isEmpty()) {
+			return new Reading("", null, 0);
+		}
+
+		StringBuilder text = new StringBuilder(segmentation.glyphs().size() + 2);
+		double confidence = 1;
+		for (Glyph glyph : segmentation.glyphs()) {
+			Match match = bestMatch(glyph, known);
+			if (match == null) {
+				return new Reading("", null, 0);
+			}
+			if (text.length() > 0 && glyph.gapBefore() > segmentation.lineHeight() * SPACE_GAP) {
+				text.append(' ');
+			}
+			text.append(match.character());
+			// Two characters almost equally likely: trust the read less
+			confidence = Math.min(confidence, match.score() * Math.min(1, (match.score() - match.second()) / MIN_MARGIN));
+		}
+
+		Duration duration = OcrDurationParser.parse(text);
+		return new Reading(text.toString(), duration, duration == null ? 0 : confidence);
+	}
+
+	/**
+	 * @return true once every digit and the colon have been learned; until then every read has confidence 0
+	 */
+	public boolean isReady() {
+		return isReady(atlas);
+	}
+
+	private static boolean isReady(Map<Character, List<Glyph>> known) {
+		return REQUIRED.chars().allMatch(c -> known.containsKey((char) c));
+	}
+
+	/**
+	 * @return the character whose closest sample is most similar to the glyph, or null if the atlas is empty
+	 */
+	private static Match bestMatch(Glyph glyph, Map<Character, List<Glyph>> known) {
+		char bestChar = 0;
+		Glyph bestSample = null;
+		double best = 0, second = 0;
+		for (Map.Entry<Character, List<Glyph>> entry : known.entrySet()) {
+			Glyph closest = null;
+			double score = 0;
+			for (Glyph sample : entry.getValue()) {
+				double similarity = similarity(glyph, sample);
+				if (closest == null || similarity > score) {
+					closest = sample;
+					score = similarity;
+				}
+			}
+			if (closest == null) {
+				continue;
+			}
+			if (bestSample == null || score > best) {
+				second = best;
+				best = score;
+				bestChar = entry.getKey();
+				bestSample = closest;
+			} else if (score > second) {
+				second = score;
+			}
+		}
+		return bestSample == null ? null : new Match(bestChar, bestSample, best, second);
+	}
+
+	/**
+	 * Counts a read of a region by another engine towards learning its glyphs. Nothing is counted unless the
+	 * text has exactly one timer character per segmented glyph. A glyph becomes a sample once
+	 * {@value #CONFIRMATIONS} reads agree on its character; one read that disagrees discards it.
+	 *
+	 * @param gray CV_8UC1 region holding only the timer
+	 * @param text text read from the same region
+	 * @return true if at least one new sample was added
+	 */
+	public boolean learn(Mat gray, String text) {
+		String compact = compact(text);
+		if (compact == null) {
+			return false;
+		}
+		List<Glyph> glyphs = segment(gray).glyphs();
+		if (glyphs.size() != compact.length()) {
+			return false;
+		}
+
+		synchronized (this) {
+			Map<Character, List<Glyph>> updated = new HashMap<>(atlas);
+			boolean changed = false;
+			// A character repeated in one read, as in 59:59, is still a single confirmation
+			List<Glyph> counted = new ArrayList<>();
+			for (int i = 0; i < glyphs.size(); i++) {
+				Glyph glyph = new Glyph(glyphs.get(i).cells(), glyphs.get(i).aspect(), 0);
+				char character = compact.charAt(i);
+				if (counted.stream().anyMatch(g -> similarity(glyph, g) >= NOVEL_SAMPLE_SIMILARITY)) {
+					continue;
+				}
+				counted.add(glyph);
+				List<Glyph> samples = new ArrayList<>(updated.getOrDefault(character, List.of()));
+				Match known = bestMatch(glyph, updated);
+				// Already a sample, of this character or of another one that only correct() may evict
+				if (samples.size() >= MAX_SAMPLES_PER_CHAR || (known != null && known.score() >= NOVEL_SAMPLE_SIMILARITY)) {
+					continue;
+				}
+
+				Candidate candidate = null;
+				for (int c = 0; c < candidates.size(); c++) {
+					if (similarity(glyph, candidates.get(c).glyph()) >= NOVEL_SAMPLE_SIMILARITY) {
+						candidate = candidates.remove(c);
+						break;
+					}
+				}
+				if (candidate == null) {
+					candidate = new Candidate(character, glyph, 0);
+				} else if (candidate.character() != character) {
+					// Reads disagree on this shape, so at least one of them is wrong: trust neither
+					logger.debug("Discarding glyph candidate read as both '{}' and '{}'", candidate.character(), character);
+					continue;
+				}
+
+				candidate = new Candidate(character, candidate.glyph(), candidate.confirmations() + 1);
+				if (candidate.confirmations() >= CONFIRMATIONS) {
+					samples.add(candidate.glyph());
+					updated.put(character, List.copyOf(samples));
+					changed = true;
+				} else {
+					candidates.add(candidate);
+					if (candidates.size() > MAX_CANDIDATES) {
+						candidates.remove(0);
+					}
+				}
+			}
+			if (changed) {
+				atlas = Map.copyOf(updated);
+				save();
+				logger.debug("Learned glyphs from \"{}\", atlas now knows {} of {} characters", compact, atlas.size(), ALPHABET.length());
+			}
+			return changed;
+		}
+	}
+
+	/**
+	 * Evicts the samples that made this recognizer read a region differently from another engine. Each glyph
+	 * the atlas assigns to a character other than the one in {@code text} loses the sample it matched, so the
+	 * character has to be learned again through {@link #learn(Mat, String)}.
+	 *
+	 * @param gray CV_8UC1 region holding only the timer
+	 * @param text text read from the same region by the engine taken as reference
+	 * @return the number of samples evicted
+	 */
+	public int correct(Mat gray, String text) {
+		String compact = compact(text);
+		if (compact == null) {
+			return 0;
+		}
+		List<Glyph> glyphs = segment(gray).glyphs();
+		if (glyphs.size() != compact.length()) {
+			return 0;
+		}
+
+		synchronized (this) {
+			Map<Character, List<Glyph>> updated = new HashMap<>(atlas);
+			int evicted = 0;
+			for (int i = 0; i < glyphs.size(); i++) {
+				Match match = bestMatch(glyphs.get(i), updated);
+				if (match == null || match.character() == compact.charAt(i)) {
+					continue;
+				}
+				List<Glyph> samples = new ArrayList<>(updated.get(match.character()));
+				samples.remove(match.sample());
+				if (samples.isEmpty()) {
+					updated.remove(match.character());
+				} else {
+					updated.put(match.character(), List.copyOf(samples));
+				}
+				evicted++;
+				logger.debug("Evicted a glyph sample of '{}' read where \"{}\" has '{}'", match.character(), compact, compact.charAt(i));
+			}
+			if (evicted > 0) {
+				atlas = Map.copyOf(updated);
+				save();
+			}
+			return evicted;
+		}
+	}
+
+	/**
+	 * @return the text without whitespace, or null if it holds anything but timer characters
+	 */
+	private static String compact(String text) {
+		if (text == null) {
+			return null;
+		}
+		String compact = text.replaceAll("\\s+", "");
+		if (compact.isEmpty() || !compact.chars().allMatch(c -> ALPHABET.indexOf(c) >= 0)) {
+			return null;
+		}
+		return compact;
+	}
+
+	private static double similarity(Glyph a, Glyph b) {
+		int difference = 0;
+		for (int i = 0; i < a.cells().length; i++) {
+			difference += Math.abs((a.cells()[i] & 0xFF) - (b.cells()[i] & 0xFF));
+		}
+		return 1 - (double) difference / (255 * a.cells().length) - ASPECT_WEIGHT * Math.abs(a.aspect() - b.aspect());
+	}
+
+	/**
+	 * Splits the text into glyphs: ink is whatever side of the Otsu threshold covers fewer pixels, and every
+	 * run of columns holding ink is one character.
+	 */
+	private static Segmentation segment(Mat gray) {
+		if (gray.type() != CvType.CV_8UC1 || gray.empty()) {
+			throw new IllegalArgumentException("Glyph recognition expects a non-empty CV_8UC1 image");
+		}
+		int width = gray.cols();
+		int height = gray.rows();
+		byte[] pixels = new byte[width * height];
+		gray.get(0, 0, pixels);
+
+		int threshold = otsuThreshold(pixels);
+		int bright = 0;
+		for (byte pixel : pixels) {
+			if ((pixel & 0xFF) > threshold) {
+				bright++;
+			}
+		}
+		if (bright == 0 || bright == pixels.length) {
+			return new Segmentation(List.of(), 0);
+		}
+		boolean inkIsBright = bright <= pixels.length / 2;
+		boolean[] ink = new boolean[pixels.length];
+		int[] columnInk = new int[width];
+		int top = height, bottom = -1;
+		for (int y = 0, i = 0; y < height; y++) {
+			for (int x = 0; x < width; x++, i++) {
+				if (((pixels[i] & 0xFF) > threshold) == inkIsBright) {
+					ink[i] = true;
+					columnInk[x]++;
+					top = Math.min(top, y);
+					bottom = Math.max(bottom, y);
+				}
+			}
+		}
+		int lineHeight = bottom - top + 1;
+
+		List<Glyph> glyphs = new ArrayList<>();
+		int previousEnd = -1;
+		for (int x = 0; x < width; x++) {
+			if (columnInk[x] == 0) {
+				continue;
+			}
+			int start = x;
+			while (x + 1 < width && columnInk[x + 1] > 0) {
+				x++;
+			}
+			byte[] cells = cells(ink, width, start, x + 1, top, bottom + 1);
+			glyphs.add(new Glyph(cells, (float) (x - start + 1) / lineHeight, previousEnd < 0 ? 0 : start - previousEnd - 1));
+			previousEnd = x;
+		}
+		return new Segmentation(glyphs, lineHeight);
+	}
+
+	/**
+	 * Ink coverage of each cell of the glyph grid, from 0 to 255. Cells always cover at least one pixel, so
+	 * glyphs narrower than the grid are stretched rather than sampled with holes.
+	 */
+	private static byte[] cells(boolean[] ink, int stride, int left, int right, int top, int bottom) {
+		byte[] cells = new byte[GLYPH_WIDTH * GLYPH_HEIGHT];
+		int glyphWidth = right - left;
+		int glyphHeight = bottom - top;
+		for (int cy = 0; cy < GLYPH_HEIGHT; cy++) {
+			int y0 = top + cy * glyphHeight / GLYPH_HEIGHT;
+			int y1 = Math.max(y0 + 1, top + (cy + 1) * glyphHeight / GLYPH_HEIGHT);
+			for (int cx = 0; cx < GLYPH_WIDTH; cx++) {
+				int x0 = left + cx * glyphWidth / GLYPH_WIDTH;
+				int x1 = Math.max(x0 + 1, left + (cx + 1) * glyphWidth / GLYPH_WIDTH);
+				int covered = 0;
+				for (int y = y0; y < y1; y++) {
+					for (int x = x0; x < x1; x++) {
+						if (ink[y * stride + x]) {
+							covered++;
+						}
+					}
+				}
+				cells[cy * GLYPH_WIDTH + cx] = (byte) (covered * 255 / ((y1 - y0) * (x1 - x0)));
+			}
+		}
+		return cells;
+	}
+
+	private static int otsuThreshold(byte[] pixels) {
+		int[] histogram = new int[256];
+		long sum = 0;
+		for (byte pixel : pixels) {
+			histogram[pixel & 0xFF]++;
+			sum += pixel & 0xFF;
+		}
+		long backgroundSum = 0;
+		int backgroundCount = 0;
+		double bestVariance = -1;
+		int threshold = 0;
+		for (int t = 0; t < 256; t++) {
+			backgroundCount += histogram[t];
+			if (backgroundCount == 0) {
+				continue;
+			}
+			int foregroundCount = pixels.length - backgroundCount;
+			if (foregroundCount == 0) {
+				break;
+			}
+			backgroundSum += (long) t * histogram[t];
+			double meanBackground = (double) backgroundSum / backgroundCount;
+			double meanForeground = (double) (sum - backgroundSum) / foregroundCount;
+			double variance = (double) backgroundCount * foregroundCount * (meanBackground - meanForeground) * (meanBackground - meanForeground);
+			if (variance > bestVariance) {
+				bestVariance = variance;
+				threshold = t;
+			}
+		}
+		return threshold;
+	}
+
+	private void load() {
+		if (!Files.exists(file)) {
+			return;
+		}
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(file)) {
+			properties.load(in);
+		} catch (IOException e) {
+			logger.warn("Could not read OCR glyphs from {}: {}", file, e.getMessage());
+			return;
+		}
+		Map<Character, List<Glyph>> loaded = new HashMap<>();
+		for (String key : properties.stringPropertyNames()) {
+			String[] value = properties.getProperty(key).split(";");
+			try {
+				byte[] cells = Base64.getDecoder().decode(value[1].trim());
+				if (key.isEmpty() || ALPHABET.indexOf(key.charAt(0)) < 0 || cells.length != GLYPH_WIDTH * GLYPH_HEIGHT) {
+					throw new IllegalArgumentException();
+				}
+				loaded.computeIfAbsent(key.charAt(0), c -> new ArrayList<>()).add(new Glyph(cells, Float.parseFloat(value[0].trim()), 0));
+			} catch (RuntimeException e) {
+				logger.debug("Ignoring malformed OCR glyph {}", key);
+			}
+		}
+		Map<Character, List<Glyph>> immutable = new HashMap<>();
+		loaded.forEach((c, samples) -> immutable.put(c, List.copyOf(samples)));
+		atlas = Map.copyOf(immutable);
+		logger.info("Loaded OCR glyphs for {} of {} characters", atlas.size(), ALPHABET.length());
+	}
+
+	/**
+	 * Writes the atlas. Learning stops once every character has its samples, so this only runs a few times.
+	 */
+	private void save() {
+		Properties properties = new Properties();
+		atlas.forEach((c, samples) -> {
+			for (int i = 0; i < samples.size(); i++) {
+				properties.setProperty(c + "." + i, samples.get(i).aspect() + ";" + Base64.getEncoder().encodeToString(samples.get(i).cells()));
+			}
+		});
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(tmp)) {
+				properties.store(out, "Timer glyphs learned from OCR, key = character.sample, value = aspect;cells");
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.warn("Could not save OCR glyphs to {}: {}", file, e.getMessage());
+		}
+	}
+}
@@ -2,38 +2,74 @@ package cl.camodev.utiles;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.opencv.core.Core;
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.MatOfByte;
+import org.opencv.core.MatOfPoint;
 import org.opencv.core.Point;
 import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
 import org.opencv.imgcodecs.Imgcodecs;
 import org.opencv.imgproc.Imgproc;
 
 import cl.camodev.wosbot.ot.DTOImageSearchResult;
 import cl.camodev.wosbot.ot.DTOPoint;
+import cl.camodev.wosbot.ot.DTOTemplateSearchResult;
 import cl.camodev.wosbot.console.enumerable.EnumTemplates;
 import org.slf4j.*;
 
 public class ImageSearchUtil {
 	private static final Logger logger = LoggerFactory.getLogger(ImageSearchUtil.class);
 
-	// Cache thread-safe para templates precargados
-	private static final ConcurrentHashMap<String, Mat> templateCache = new ConcurrentHashMap<>();
+	// Cache thread-safe de templates decodificados, compartidos sin copia entre búsquedas
+	private static final ConcurrentHashMap<String, CachedTemplate> templateCache = new ConcurrentHashMap<>();
 
 	// Pool de threads personalizado para operaciones de OpenCV
 	private static final ForkJoinPool openCVThreadPool = new ForkJoinPool(
 		Math.min(Runtime.getRuntime().availableProcessors(), 4)
 	);
 
-	// Cache para byte arrays de templates
-	private static final ConcurrentHashMap<String, byte[]> templateBytesCache = new ConcurrentHashMap<>();
+	// Atlas de templates pre-decodificados, mapeado en memoria
+	private static volatile TemplateAtlas templateAtlas;
+
+	// Estadísticas del cache
+	private static final LongAdder cacheHits = new LongAdder();
+	private static final LongAdder cacheMisses = new LongAdder();
+
+	// Última posición conocida de cada template, para buscar primero alrededor de ella
+	private static final TemplateLocationHints locationHints = new TemplateLocationHints();
+
+	// Búsqueda piramidal: primero a resolución reducida, luego refinado alrededor de los candidatos
+	private static volatile boolean pyramidMatching = false;
+	private static final ConcurrentHashMap<String, Integer> pyramidFactorOverrides = new ConcurrentHashMap<>();
+	private static final int PYRAMID_CANDIDATES = 3;
+	private static final double PYRAMID_COARSE_MARGIN = 15.0;
+
+	// Prefiltro por huella de píxeles en la ubicación habitual del template
+	private static volatile boolean prefilter = true;
+	// Templates que nunca cambian de lugar; solo para ellos un fallo de la huella descarta la búsqueda
+	private static final Set<String> fixedAnchors = ConcurrentHashMap.newKeySet();
+	private static volatile boolean prefilterValidation = false;
+	private static final double PREFILTER_MIN_THRESHOLD = 80.0;
+	private static final int PREFILTER_VERIFY_EVERY = 20;
+	private static final ConcurrentHashMap<String, AtomicInteger> prefilterRejectionCounts = new ConcurrentHashMap<>();
+	private static final LongAdder prefilterChecks = new LongAdder();
+	private static final LongAdder prefilterRejections = new LongAdder();
+	private static final LongAdder prefilterDisagreements = new LongAdder();
+
+	// Solapamiento máximo (IoU) entre dos resultados de una búsqueda múltiple
+	public static final double DEFAULT_MAX_OVERLAP = 0.3;
 
 	// Estado de inicialización del cache
 	private static volatile boolean cacheInitialized = false;
@@ -43,9 +79,8 @@ public class ImageSearchUtil {
 		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
 			openCVThreadPool.shutdown();
 			// Limpiar cache y liberar memoria de OpenCV
-			templateCache.values().forEach(Mat::release);
+			templateCache.values().forEach(CachedTemplate::release);
 			templateCache.clear();
-			templateBytesCache.clear();
 		}));
 
 		// Precargar todos los templates del enum en background
@@ -61,12 +96,13 @@ public class ImageSearchUtil {
 		openCVThreadPool.submit(() -> {
 			try {
 				logger.info("Caching templates...");
+				templateAtlas = TemplateAtlas.open();
 
 				// Precargar todos los templates del enum
 				for (EnumTemplates enumTemplate : EnumTemplates.values()) {
 					String templatePath = enumTemplate.getTemplate();
 					try {
-						loadTemplateOptimized(templatePath);
+						getTemplate(templatePath);
 						logger.debug("Template {} cached successfully", templatePath);
 					} catch (Exception e) {
 						logger.warn("Error precargando template {}: {}", templatePath, e.getMessage());
@@ -74,7 +110,7 @@ public class ImageSearchUtil {
 				}
 
 				cacheInitialized = true;
-				logger.info("Template cache initialized with {} templates", templateCache.size());
+				logger.info("Template cache initialized with {} templates ({} from the atlas)", templateCache.size(), templateAtlas != null ? templateAtlas.paths().size() : 0);
 
 			} catch (Exception e) {
 				logger.error("Error initializing template cache: {}", e.getMessage());
@@ -132,48 +168,50 @@ public class ImageSearchUtil {
 	}
 
 	/**
-	 * Método optimizado para carga y cache de templates
+	 * Returns the cached template, decoding it on first use. The returned template is shared: it must not be
+	 * modified or released.
+	 *
+	 * @param templateResourcePath path of the template within the jar resources
+	 * @return the template, or null if the resource is missing or cannot be decoded
 	 */
-	private static Mat loadTemplateOptimized(String templateResourcePath) {
-		// Intentar obtener del cache primero
-		Mat cachedTemplate = templateCache.get(templateResourcePath);
-		if (cachedTemplate != null && !cachedTemplate.empty()) {
-			return cachedTemplate.clone(); // Retornar copia para thread safety
+	static CachedTemplate getTemplate(String templateResourcePath) {
+		CachedTemplate cached = templateCache.get(templateResourcePath);
+		if (cached != null) {
+			cacheHits.increment();
+			return cached;
 		}
+		cacheMisses.increment();
+		// computeIfAbsent decodes each template once even if several threads miss at the same time
+		return templateCache.computeIfAbsent(templateResourcePath, ImageSearchUtil::loadTemplate);
+	}
 
-		try {
-			// Cargar bytes del cache o del recurso
-			byte[] templateBytes = templateBytesCache.computeIfAbsent(templateResourcePath, path -> {
-				try (InputStream is = ImageSearchUtil.class.getResourceAsStream(path)) {
-					if (is == null) {
-						logger.error("Template resource not found: {}", path);
-						return null;
-					}
-					return is.readAllBytes();
-				} catch (IOException e) {
-					logger.error("Error loading template bytes for: {}", path, e);
-					return null;
-				}
-			});
-
-			if (templateBytes == null) {
-				return new Mat(); // Mat vacío
+	/**
+	 * Takes the template from the prebuilt atlas when available, otherwise decodes its PNG.
+	 */
+	private static CachedTemplate loadTemplate(String templateResourcePath) {
+		TemplateAtlas atlas = templateAtlas;
+		if (atlas != null) {
+			CachedTemplate template = atlas.load(templateResourcePath);
+			if (template != null) {
+				return template;
 			}
-
-			// Decodificar template
-			MatOfByte templateMatOfByte = new MatOfByte(templateBytes);
+		}
+		try (InputStream is = ImageSearchUtil.class.getResourceAsStream(templateResourcePath)) {
+			if (is == null) {
+				logger.error("Template resource not found: {}", templateResourcePath);
+				return null;
+			}
+			MatOfByte templateMatOfByte = new MatOfByte(is.readAllBytes());
 			Mat template = Imgcodecs.imdecode(templateMatOfByte, Imgcodecs.IMREAD_COLOR);
-
-			if (!template.empty()) {
-				// Guardar en cache (clone para evitar modificaciones)
-				templateCache.put(templateResourcePath, template.clone());
+			templateMatOfByte.release();
+			if (template.empty()) {
+				logger.error("Template could not be decoded: {}", templateResourcePath);
+				return null;
 			}
-
-			return template;
-
+			return new CachedTemplate(templateResourcePath, template);
 		} catch (Exception e) {
 			logger.error("Exception loading template: {}", templateResourcePath, e);
-			return new Mat();
+			return null;
 		}
 	}
 
@@ -184,23 +222,9 @@ public class ImageSearchUtil {
 			DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double thresholdPercentage) {
 
 		Mat imagenPrincipal = null;
-		Mat template = null;
-		Mat imagenROI = null;
-		Mat resultado = null;
 
 		try {
-			// Validación rápida de ROI
-			int roiX = topLeftCorner.getX();
-			int roiY = topLeftCorner.getY();
-			int roiWidth = bottomRightCorner.getX() - topLeftCorner.getX();
-			int roiHeight = bottomRightCorner.getY() - topLeftCorner.getY();
-
-			if (roiWidth <= 0 || roiHeight <= 0) {
-				logger.error("Invalid ROI dimensions");
-				return new DTOImageSearchResult(false, null, 0.0);
-			}
-
-			// Decodificación de imagen principal (reutilizable)
+			// Decodificación de imagen principal
 			MatOfByte matOfByte = new MatOfByte(image);
 			imagenPrincipal = Imgcodecs.imdecode(matOfByte, Imgcodecs.IMREAD_COLOR);
 
@@ -208,61 +232,347 @@ public class ImageSearchUtil {
 				return new DTOImageSearchResult(false, null, 0.0);
 			}
 
-			// Cargar template optimizado con cache
-			template = loadTemplateOptimized(templateResourcePath);
-			if (template.empty()) {
-				return new DTOImageSearchResult(false, null, 0.0);
+			return searchInImage(imagenPrincipal, templateResourcePath, topLeftCorner, bottomRightCorner, thresholdPercentage);
+
+		} catch (Exception e) {
+			logger.error("Exception during optimized template search", e);
+			return new DTOImageSearchResult(false, null, 0.0);
+		} finally {
+			if (imagenPrincipal != null) imagenPrincipal.release();
+		}
+	}
+
+	/**
+	 * Searches a template inside an already decoded {@link Frame}. No capture or decode takes place,
+	 * so several searches can run against the same screen state.
+	 * <p>
+	 * If the frame carries a {@link MatchMemo} and the same search already ran on the same pixels, the
+	 * memoized result is returned without matching. Fixed anchors are never memoized, see
+	 * {@link #registerFixedAnchor(String)}.
+	 *
+	 * @param frame                decoded screen snapshot
+	 * @param templateResourcePath path of the template within the jar resources
+	 * @param topLeftCorner        upper left corner of the ROI
+	 * @param bottomRightCorner    lower right corner of the ROI
+	 * @param thresholdPercentage  match threshold as a percentage (0 to 100)
+	 * @return the best match, see {@link #buscarTemplate(byte[], String, DTOPoint, DTOPoint, double)}
+	 */
+	public static DTOImageSearchResult buscarTemplate(Frame frame, String templateResourcePath,
+			DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double thresholdPercentage) {
+		try {
+			Mat image = frame.getMat();
+			MatchMemo memo = frame.getMatchMemo();
+			Rect roi = new Rect(topLeftCorner.getX(), topLeftCorner.getY(), bottomRightCorner.getX() - topLeftCorner.getX(), bottomRightCorner.getY() - topLeftCorner.getY());
+			// ROI inválido: searchInImage se encarga de reportarlo. Los anclas fijas ya son baratas gracias al
+			// prefiltro, y memoizarlas saltaría sus pasadas de verificación
+			if (memo == null || fixedAnchors.contains(templateResourcePath) || roi.x < 0 || roi.y < 0 || roi.width <= 0 || roi.height <= 0 || roi.x + roi.width > image.cols() || roi.y + roi.height > image.rows()) {
+				return searchInImage(image, templateResourcePath, topLeftCorner, bottomRightCorner, thresholdPercentage);
 			}
 
-			// Validación de ROI vs imagen
-			if (roiX + roiWidth > imagenPrincipal.cols() || roiY + roiHeight > imagenPrincipal.rows()) {
-				logger.error("ROI exceeds image dimensions");
-				return new DTOImageSearchResult(false, null, 0.0);
+			long regionHash = frame.getRegionHash(roi, memo);
+			DTOImageSearchResult memoized = memo.get(regionHash, templateResourcePath, thresholdPercentage, roi);
+			if (memoized != null) {
+				return memoized;
 			}
+			long start = System.nanoTime();
+			DTOImageSearchResult result = searchInImage(image, templateResourcePath, topLeftCorner, bottomRightCorner, thresholdPercentage);
+			memo.put(regionHash, templateResourcePath, thresholdPercentage, roi, result, System.nanoTime() - start);
+			return result;
+		} catch (Exception e) {
+			logger.error("Exception during frame template search", e);
+			return new DTOImageSearchResult(false, null, 0.0);
+		}
+	}
 
-			// Crear ROI
-			Rect roi = new Rect(roiX, roiY, roiWidth, roiHeight);
+	/**
+	 * Búsqueda del mejor match sobre una imagen ya decodificada. No libera la imagen recibida.
+	 * <p>
+	 * Si el template ya se encontró antes en esta resolución, primero se busca en una ventana pequeña
+	 * alrededor de la última posición conocida y solo ante un fallo se recorre el ROI completo.
+	 */
+	private static DTOImageSearchResult searchInImage(Mat imagenPrincipal, String templateResourcePath,
+			DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double thresholdPercentage) {
+
+		// Validación rápida de ROI
+		int roiX = topLeftCorner.getX();
+		int roiY = topLeftCorner.getY();
+		int roiWidth = bottomRightCorner.getX() - topLeftCorner.getX();
+		int roiHeight = bottomRightCorner.getY() - topLeftCorner.getY();
+
+		if (roiWidth <= 0 || roiHeight <= 0) {
+			logger.error("Invalid ROI dimensions");
+			return new DTOImageSearchResult(false, null, 0.0);
+		}
+
+		// Template compartido del cache, sin copia
+		CachedTemplate template = getTemplate(templateResourcePath);
+		if (template == null) {
+			return new DTOImageSearchResult(false, null, 0.0);
+		}
+
+		// Validación de ROI vs imagen
+		if (roiX + roiWidth > imagenPrincipal.cols() || roiY + roiHeight > imagenPrincipal.rows()) {
+			logger.error("ROI exceeds image dimensions");
+			return new DTOImageSearchResult(false, null, 0.0);
+		}
+
+		Rect roi = new Rect(roiX, roiY, roiWidth, roiHeight);
+		boolean probeFailed = failsProbe(imagenPrincipal, roi, template, thresholdPercentage);
+		// Only a fixed anchor can be declared missing from its usual location; any other template may have moved
+		boolean anchorRejected = probeFailed && fixedAnchors.contains(templateResourcePath);
+		boolean verifying = anchorRejected && (prefilterValidation || isVerificationTurn(templateResourcePath));
+		if (anchorRejected && !verifying) {
+			prefilterRejections.increment();
+			logger.debug("Template {} skipped, fingerprint does not match at its usual location", templateResourcePath);
+			return new DTOImageSearchResult(false, null, 0.0);
+		}
+
+		// The hint window is pointless once the fingerprint failed there, go straight to the full ROI
+		Rect window = probeFailed ? null : locationHints.window(templateResourcePath, imagenPrincipal.cols(), imagenPrincipal.rows(), roi, template.getWidth(), template.getHeight());
+		if (window != null) {
+			DTOImageSearchResult hinted = matchBest(imagenPrincipal, window, template, thresholdPercentage);
+			if (hinted.isFound()) {
+				locationHints.record(templateResourcePath, imagenPrincipal.cols(), imagenPrincipal.rows(), hinted.getPoint().getX(), hinted.getPoint().getY());
+				return hinted;
+			}
+		}
+
+		int factor = getPyramidFactor(template);
+		DTOImageSearchResult result = factor > 1
+				? matchBestPyramid(imagenPrincipal, roi, template, factor, thresholdPercentage)
+				: matchBest(imagenPrincipal, roi, template, thresholdPercentage);
+		if (verifying && result.isFound()) {
+			prefilterDisagreements.increment();
+			logger.warn("Prefilter disagreement: template {} was rejected by its fingerprint but matched at {},{} ({}%)", templateResourcePath, result.getPoint().getX(), result.getPoint().getY(), result.getMatchPercentage());
+		}
+		if (result.isFound()) {
+			locationHints.record(templateResourcePath, imagenPrincipal.cols(), imagenPrincipal.rows(), result.getPoint().getX(), result.getPoint().getY());
+		} else {
+			logger.warn("Template {} match percentage {} below threshold {}", templateResourcePath, result.getMatchPercentage(), thresholdPercentage);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks the template fingerprint at its stable hinted location. A failure means the template is not at
+	 * its usual place; it may still be elsewhere in the ROI unless it is a {@linkplain #registerFixedAnchor
+	 * fixed anchor}.
+	 *
+	 * @return true if the probe ran and the sampled pixels do not match
+	 */
+	private static boolean failsProbe(Mat imagenPrincipal, Rect roi, CachedTemplate template, double thresholdPercentage) {
+		if (!prefilter || thresholdPercentage < PREFILTER_MIN_THRESHOLD) {
+			return false;
+		}
+		int[] center = locationHints.stableCenter(template.getPath(), imagenPrincipal.cols(), imagenPrincipal.rows());
+		if (center == null) {
+			return false;
+		}
+		int left = center[0] - template.getWidth() / 2;
+		int top = center[1] - template.getHeight() / 2;
+		if (left < roi.x || top < roi.y || left + template.getWidth() > roi.x + roi.width || top + template.getHeight() > roi.y + roi.height) {
+			return false;
+		}
+		prefilterChecks.increment();
+		return !template.getFingerprint().mayMatchAt(imagenPrincipal, left, top);
+	}
+
+	/**
+	 * Every {@value #PREFILTER_VERIFY_EVERY}th rejection of an anchor is not trusted and runs a full search, so
+	 * an anchor that moved gets a new hint and the disagreement is logged.
+	 */
+	private static boolean isVerificationTurn(String templateResourcePath) {
+		int rejections = prefilterRejectionCounts.computeIfAbsent(templateResourcePath, path -> new AtomicInteger()).incrementAndGet();
+		return rejections % PREFILTER_VERIFY_EVERY == 0;
+	}
+
+	/**
+	 * Marks a template as a fixed UI element, one that is either at its usual location or not on screen at
+	 * all. When its fingerprint fails at that location the search is skipped. Templates that can show up in
+	 * several places, such as list items or reward buttons, must not be registered.
+	 *
+	 * @param templateResourcePath path of the template within the jar resources
+	 */
+	public static void registerFixedAnchor(String templateResourcePath) {
+		fixedAnchors.add(templateResourcePath);
+	}
+
+	static TemplateLocationHints getLocationHints() {
+		return locationHints;
+	}
+
+	/**
+	 * Enables or disables the fingerprint prefilter.
+	 *
+	 * @param enabled true to skip searches that clearly cannot match
+	 */
+	public static void setPrefilter(boolean enabled) {
+		prefilter = enabled;
+	}
+
+	/**
+	 * In validation mode, anchor searches rejected by the fingerprint prefilter still run in full and any match
+	 * they find is logged and counted as a disagreement.
+	 *
+	 * @param enabled true to validate every rejection
+	 */
+	public static void setPrefilterValidation(boolean enabled) {
+		prefilterValidation = enabled;
+	}
+
+	public static PrefilterStats getPrefilterStats() {
+		return new PrefilterStats(prefilterChecks.sum(), prefilterRejections.sum(), prefilterDisagreements.sum());
+	}
+
+	/**
+	 * Snapshot of the fingerprint prefilter counters.
+	 *
+	 * @param checks        fingerprint probes done
+	 * @param rejections    anchor searches the probe skipped
+	 * @param disagreements rejected anchor searches that matched anyway, on verification passes or in validation
+	 *                      mode
+	 */
+	public record PrefilterStats(long checks, long rejections, long disagreements) {
+	}
+
+	/**
+	 * Busca el mejor match del template dentro de un rectángulo de la imagen.
+	 */
+	static DTOImageSearchResult matchBest(Mat imagenPrincipal, Rect roi, CachedTemplate template, double thresholdPercentage) {
+		Mat imagenROI = null;
+		Mat resultado = null;
+
+		try {
 			imagenROI = new Mat(imagenPrincipal, roi);
 
 			// Verificación de tamaño optimizada
-			int resultCols = imagenROI.cols() - template.cols() + 1;
-			int resultRows = imagenROI.rows() - template.rows() + 1;
+			int resultCols = imagenROI.cols() - template.getWidth() + 1;
+			int resultRows = imagenROI.rows() - template.getHeight() + 1;
 			if (resultCols <= 0 || resultRows <= 0) {
 				return new DTOImageSearchResult(false, null, 0.0);
 			}
 
 			// Template matching
-			resultado = new Mat(resultRows, resultCols, CvType.CV_32FC1);
-			Imgproc.matchTemplate(imagenROI, template, resultado, Imgproc.TM_CCOEFF_NORMED);
+			resultado = MatPool.acquire(resultRows, resultCols, CvType.CV_32FC1);
+			Imgproc.matchTemplate(imagenROI, template.getBgr(), resultado, Imgproc.TM_CCOEFF_NORMED);
 
 			// Búsqueda del mejor match
 			Core.MinMaxLocResult mmr = Core.minMaxLoc(resultado);
 			double matchPercentage = mmr.maxVal * 100.0;
 
 			if (matchPercentage < thresholdPercentage) {
-				logger.warn("Template {} match percentage {} below threshold {}", templateResourcePath, matchPercentage, thresholdPercentage);
 				return new DTOImageSearchResult(false, null, matchPercentage);
 			}
 
 			// Calcular coordenadas del centro
 			Point matchLoc = mmr.maxLoc;
-			double centerX = matchLoc.x + roi.x + (template.cols() / 2.0);
-			double centerY = matchLoc.y + roi.y + (template.rows() / 2.0);
+			double centerX = matchLoc.x + roi.x + (template.getWidth() / 2.0);
+			double centerY = matchLoc.y + roi.y + (template.getHeight() / 2.0);
 
 			return new DTOImageSearchResult(true, new DTOPoint((int) centerX, (int) centerY), matchPercentage);
 
-		} catch (Exception e) {
-			logger.error("Exception during optimized template search", e);
-			return new DTOImageSearchResult(false, null, 0.0);
 		} finally {
 			// Liberación explícita de memoria OpenCV
-			if (imagenPrincipal != null) imagenPrincipal.release();
-			if (template != null) template.release();
 			if (imagenROI != null) imagenROI.release();
-			if (resultado != null) resultado.release();
+			MatPool.recycle(resultado);
 		}
 	}
 
+	/**
+	 * Coarse-to-fine search: matches the downscaled template on the ROI downscaled by {@code factor}, then
+	 * refines the best coarse candidates at full resolution in a window a few pixels larger than the template.
+	 * The coarse pass uses a threshold {@value #PYRAMID_COARSE_MARGIN} points lower than the requested one,
+	 * since downscaling blurs details and lowers the scores.
+	 */
+	static DTOImageSearchResult matchBestPyramid(Mat imagenPrincipal, Rect roi, CachedTemplate template, int factor, double thresholdPercentage) {
+		Mat scaledTemplate = template.getScaledBgr(factor);
+		if (roi.width / factor < scaledTemplate.cols() || roi.height / factor < scaledTemplate.rows()) {
+			return matchBest(imagenPrincipal, roi, template, thresholdPercentage);
+		}
+
+		Mat imagenROI = null;
+		Mat reducida = null;
+		Mat coarse = null;
+
+		try {
+			imagenROI = new Mat(imagenPrincipal, roi);
+			reducida = MatPool.acquire(roi.height / factor, roi.width / factor, imagenPrincipal.type());
+			Imgproc.resize(imagenROI, reducida, reducida.size(), 0, 0, Imgproc.INTER_AREA);
+			coarse = MatPool.acquire(reducida.rows() - scaledTemplate.rows() + 1, reducida.cols() - scaledTemplate.cols() + 1, CvType.CV_32FC1);
+			Imgproc.matchTemplate(reducida, scaledTemplate, coarse, Imgproc.TM_CCOEFF_NORMED);
+
+			double coarseThreshold = (thresholdPercentage - PYRAMID_COARSE_MARGIN) / 100.0;
+			int margin = 2 * factor;
+			DTOImageSearchResult best = new DTOImageSearchResult(false, null, 0.0);
+
+			for (int i = 0; i < PYRAMID_CANDIDATES; i++) {
+				Core.MinMaxLocResult mmr = Core.minMaxLoc(coarse);
+				if (mmr.maxVal < coarseThreshold) {
+					if (i == 0) {
+						best = new DTOImageSearchResult(false, null, mmr.maxVal * 100.0);
+					}
+					break;
+				}
+
+				// Refinar a resolución completa alrededor del candidato
+				int x1 = Math.max(roi.x, roi.x + (int) mmr.maxLoc.x * factor - margin);
+				int y1 = Math.max(roi.y, roi.y + (int) mmr.maxLoc.y * factor - margin);
+				int x2 = Math.min(roi.x + roi.width, roi.x + (int) mmr.maxLoc.x * factor + template.getWidth() + margin);
+				int y2 = Math.min(roi.y + roi.height, roi.y + (int) mmr.maxLoc.y * factor + template.getHeight() + margin);
+				DTOImageSearchResult refined = matchBest(imagenPrincipal, new Rect(x1, y1, x2 - x1, y2 - y1), template, thresholdPercentage);
+				if (refined.getMatchPercentage() > best.getMatchPercentage()) {
+					best = refined;
+				}
+
+				// Descartar el candidato para encontrar el siguiente
+				int suppressX = Math.max(0, (int) mmr.maxLoc.x - scaledTemplate.cols() / 2);
+				int suppressY = Math.max(0, (int) mmr.maxLoc.y - scaledTemplate.rows() / 2);
+				int suppressWidth = Math.min(scaledTemplate.cols(), coarse.cols() - suppressX);
+				int suppressHeight = Math.min(scaledTemplate.rows(), coarse.rows() - suppressY);
+				Mat suppressArea = new Mat(coarse, new Rect(suppressX, suppressY, suppressWidth, suppressHeight));
+				suppressArea.setTo(new Scalar(-1));
+				suppressArea.release();
+			}
+			return best;
+
+		} finally {
+			if (imagenROI != null) imagenROI.release();
+			MatPool.recycle(reducida);
+			MatPool.recycle(coarse);
+		}
+	}
+
+	private static int getPyramidFactor(CachedTemplate template) {
+		if (!pyramidMatching) {
+			return 1;
+		}
+		return pyramidFactorOverrides.getOrDefault(template.getPath(), template.getDefaultPyramidFactor());
+	}
+
+	/**
+	 * Enables or disables coarse-to-fine pyramid matching for best-match searches over a full ROI.
+	 * Searches inside a location hint window always run at full resolution.
+	 *
+	 * @param enabled true to match at reduced resolution first
+	 */
+	public static void setPyramidMatching(boolean enabled) {
+		pyramidMatching = enabled;
+	}
+
+	/**
+	 * Overrides the pyramid factor chosen from the template size, for example to keep a small icon at full
+	 * resolution.
+	 *
+	 * @param template template to configure
+	 * @param factor   1 for full resolution only, 2 or 4 to match at half or quarter resolution first
+	 */
+	public static void setPyramidFactor(EnumTemplates template, int factor) {
+		if (factor != 1 && factor != 2 && factor != 4) {
+			throw new IllegalArgumentException("Pyramid factor must be 1, 2 or 4: " + factor);
+		}
+		pyramidFactorOverrides.put(template.getTemplate(), factor);
+	}
+
 	/**
 	 * Versión optimizada para búsqueda múltiple con paralelización
 	 */
@@ -283,12 +593,82 @@ public class ImageSearchUtil {
 			String templateResourcePath, DTOPoint topLeftCorner, DTOPoint bottomRightCorner,
 			double thresholdPercentage, int maxResults) {
 
-		List<DTOImageSearchResult> results = new ArrayList<>();
 		Mat mainImage = null;
-		Mat template = null;
+
+		try {
+			// Decodificación optimizada
+			MatOfByte matOfByte = new MatOfByte(image);
+			mainImage = Imgcodecs.imdecode(matOfByte, Imgcodecs.IMREAD_COLOR);
+
+			if (mainImage.empty()) {
+				return new ArrayList<>();
+			}
+
+			return searchMultipleInImage(mainImage, templateResourcePath, topLeftCorner, bottomRightCorner, thresholdPercentage, maxResults, DEFAULT_MAX_OVERLAP);
+
+		} catch (Exception e) {
+			logger.error("Exception during optimized multiple template search", e);
+			return new ArrayList<>();
+		} finally {
+			if (mainImage != null) mainImage.release();
+		}
+	}
+
+	/**
+	 * Searches multiple matches of a template inside an already decoded {@link Frame}.
+	 *
+	 * @param frame                decoded screen snapshot
+	 * @param templateResourcePath path of the template within the jar resources
+	 * @param topLeftCorner        upper left corner of the ROI
+	 * @param bottomRightCorner    lower right corner of the ROI
+	 * @param thresholdPercentage  match threshold as a percentage (0 to 100)
+	 * @param maxResults           maximum number of results to return, 0 or negative for all
+	 * @return all matches above the threshold, best score first
+	 */
+	public static List<DTOImageSearchResult> searchTemplateMultiple(Frame frame, String templateResourcePath,
+			DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double thresholdPercentage, int maxResults) {
+		return searchTemplateMultiple(frame, templateResourcePath, topLeftCorner, bottomRightCorner, thresholdPercentage, maxResults, DEFAULT_MAX_OVERLAP);
+	}
+
+	/**
+	 * Searches multiple matches of a template inside an already decoded {@link Frame}, with a custom
+	 * non-maximum suppression overlap.
+	 *
+	 * @param frame                decoded screen snapshot
+	 * @param templateResourcePath path of the template within the jar resources
+	 * @param topLeftCorner        upper left corner of the ROI
+	 * @param bottomRightCorner    lower right corner of the ROI
+	 * @param thresholdPercentage  match threshold as a percentage (0 to 100)
+	 * @param maxResults           maximum number of results to return, 0 or negative for all
+	 * @param maxOverlap           highest intersection over union (0 to 1) allowed between two returned matches
+	 * @return all matches above the threshold, best score first
+	 */
+	public static List<DTOImageSearchResult> searchTemplateMultiple(Frame frame, String templateResourcePath,
+			DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double thresholdPercentage, int maxResults, double maxOverlap) {
+		try {
+			return searchMultipleInImage(frame.getMat(), templateResourcePath, topLeftCorner, bottomRightCorner, thresholdPercentage, maxResults, maxOverlap);
+		} catch (Exception e) {
+			logger.error("Exception during frame multiple template search", e);
+			return new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Búsqueda múltiple sobre una imagen ya decodificada. No libera la imagen recibida.
+	 * <p>
+	 * Los picos se extraen en una sola pasada: los máximos locales (puntos iguales a su dilatación) que
+	 * superan el umbral se ordenan por puntaje y se filtran con supresión de no máximos por IoU.
+	 */
+	private static List<DTOImageSearchResult> searchMultipleInImage(Mat mainImage, String templateResourcePath,
+			DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double thresholdPercentage, int maxResults, double maxOverlap) {
+
+		List<DTOImageSearchResult> results = new ArrayList<>();
 		Mat imageROI = null;
 		Mat matchResult = null;
-		Mat resultCopy = null;
+		Mat dilated = null;
+		Mat peaks = null;
+		Mat aboveThreshold = null;
+		MatOfPoint peakLocations = null;
 
 		try {
 			// Validación rápida de ROI
@@ -301,17 +681,9 @@ public class ImageSearchUtil {
 				return results;
 			}
 
-			// Decodificación optimizada
-			MatOfByte matOfByte = new MatOfByte(image);
-			mainImage = Imgcodecs.imdecode(matOfByte, Imgcodecs.IMREAD_COLOR);
-
-			if (mainImage.empty()) {
-				return results;
-			}
-
-			// Cargar template con cache
-			template = loadTemplateOptimized(templateResourcePath);
-			if (template.empty()) {
+			// Template compartido del cache, sin copia
+			CachedTemplate template = getTemplate(templateResourcePath);
+			if (template == null) {
 				return results;
 			}
 
@@ -324,83 +696,104 @@ public class ImageSearchUtil {
 			Rect roi = new Rect(roiX, roiY, roiWidth, roiHeight);
 			imageROI = new Mat(mainImage, roi);
 
-			int resultCols = imageROI.cols() - template.cols() + 1;
-			int resultRows = imageROI.rows() - template.rows() + 1;
+			int resultCols = imageROI.cols() - template.getWidth() + 1;
+			int resultRows = imageROI.rows() - template.getHeight() + 1;
 			if (resultCols <= 0 || resultRows <= 0) {
 				return results;
 			}
 
 			// Template matching
-			matchResult = new Mat(resultRows, resultCols, CvType.CV_32FC1);
-			Imgproc.matchTemplate(imageROI, template, matchResult, Imgproc.TM_CCOEFF_NORMED);
-
-			// Búsqueda optimizada de múltiples matches
-			double thresholdDecimal = thresholdPercentage / 100.0;
-			resultCopy = matchResult.clone();
-			int templateWidth = template.cols();
-			int templateHeight = template.rows();
-
-			// Pre-calcular para optimización
-			int halfTemplateWidth = templateWidth / 2;
-			int halfTemplateHeight = templateHeight / 2;
-
-			while (results.size() < maxResults || maxResults <= 0) {
-				Core.MinMaxLocResult mmr = Core.minMaxLoc(resultCopy);
-				double matchValue = mmr.maxVal;
+			matchResult = MatPool.acquire(resultRows, resultCols, CvType.CV_32FC1);
+			Imgproc.matchTemplate(imageROI, template.getBgr(), matchResult, Imgproc.TM_CCOEFF_NORMED);
+
+			int templateWidth = template.getWidth();
+			int templateHeight = template.getHeight();
+
+			// Máximos locales: puntos que no cambian al dilatar con una ventana de medio template
+			Mat kernel = Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size((templateWidth / 2) | 1, (templateHeight / 2) | 1));
+			dilated = MatPool.acquire(resultRows, resultCols, CvType.CV_32FC1);
+			Imgproc.dilate(matchResult, dilated, kernel);
+			kernel.release();
+			peaks = MatPool.acquire(resultRows, resultCols, CvType.CV_8UC1);
+			Core.compare(matchResult, dilated, peaks, Core.CMP_GE);
+			aboveThreshold = MatPool.acquire(resultRows, resultCols, CvType.CV_8UC1);
+			Core.compare(matchResult, new Scalar(thresholdPercentage / 100.0), aboveThreshold, Core.CMP_GE);
+			Core.bitwise_and(peaks, aboveThreshold, peaks);
+
+			peakLocations = new MatOfPoint();
+			Core.findNonZero(peaks, peakLocations);
+			List<Peak> candidates = new ArrayList<>();
+			for (Point location : peakLocations.toArray()) {
+				candidates.add(new Peak((int) location.x, (int) location.y, matchResult.get((int) location.y, (int) location.x)[0]));
+			}
+			candidates.sort(Comparator.comparingDouble(Peak::score).reversed());
 
-				if (matchValue < thresholdDecimal) {
+			// Supresión de no máximos, en orden de puntaje
+			List<Peak> kept = new ArrayList<>();
+			for (Peak candidate : candidates) {
+				if (maxResults > 0 && kept.size() >= maxResults) {
 					break;
 				}
-
-				Point matchLoc = mmr.maxLoc;
-				double centerX = matchLoc.x + roi.x + halfTemplateWidth;
-				double centerY = matchLoc.y + roi.y + halfTemplateHeight;
-
-				results.add(new DTOImageSearchResult(true,
-					new DTOPoint((int) centerX, (int) centerY), matchValue * 100.0));
-
-				// Supresión optimizada
-				int suppressX = Math.max(0, (int)matchLoc.x - halfTemplateWidth);
-				int suppressY = Math.max(0, (int)matchLoc.y - halfTemplateHeight);
-				int suppressWidth = Math.min(templateWidth, resultCopy.cols() - suppressX);
-				int suppressHeight = Math.min(templateHeight, resultCopy.rows() - suppressY);
-
-				if (suppressWidth > 0 && suppressHeight > 0) {
-					Rect suppressRect = new Rect(suppressX, suppressY, suppressWidth, suppressHeight);
-					Mat suppressArea = new Mat(resultCopy, suppressRect);
-					suppressArea.setTo(new org.opencv.core.Scalar(0));
-					suppressArea.release();
+				boolean overlaps = false;
+				for (Peak accepted : kept) {
+					if (overlap(candidate, accepted, templateWidth, templateHeight) > maxOverlap) {
+						overlaps = true;
+						break;
+					}
+				}
+				if (overlaps) {
+					continue;
 				}
+				kept.add(candidate);
+				int centerX = candidate.x() + roi.x + templateWidth / 2;
+				int centerY = candidate.y() + roi.y + templateHeight / 2;
+				results.add(new DTOImageSearchResult(true, new DTOPoint(centerX, centerY), candidate.score() * 100.0));
 			}
 
-		} catch (Exception e) {
-			logger.error("Exception during optimized multiple template search", e);
 		} finally {
 			// Liberación explícita de memoria
-			if (mainImage != null) mainImage.release();
-			if (template != null) template.release();
 			if (imageROI != null) imageROI.release();
-			if (matchResult != null) matchResult.release();
-			if (resultCopy != null) resultCopy.release();
+			MatPool.recycle(matchResult);
+			MatPool.recycle(dilated);
+			MatPool.recycle(peaks);
+			MatPool.recycle(aboveThreshold);
+			if (peakLocations != null) peakLocations.release();
 		}
 
 		return results;
 	}
 
+	/**
+	 * Top-left corner of a candidate match in the result matrix, with its score.
+	 */
+	private record Peak(int x, int y, double score) {
+	}
+
+	/**
+	 * Intersection over union of two template-sized boxes.
+	 */
+	private static double overlap(Peak a, Peak b, int width, int height) {
+		int intersectionWidth = Math.max(0, width - Math.abs(a.x() - b.x()));
+		int intersectionHeight = Math.max(0, height - Math.abs(a.y() - b.y()));
+		double intersection = (double) intersectionWidth * intersectionHeight;
+		double area = (double) width * height;
+		return intersection / (2 * area - intersection);
+	}
+
 	/**
 	 * Método para precarga de templates comunes
 	 */
 	public static void preloadTemplate(String templateResourcePath) {
-		openCVThreadPool.submit(() -> loadTemplateOptimized(templateResourcePath));
+		openCVThreadPool.submit(() -> getTemplate(templateResourcePath));
 	}
 
 	/**
-	 * Método para limpiar cache manualmente
+	 * Método para limpiar cache manualmente. Los templates se comparten sin copia, por lo que solo debe
+	 * llamarse cuando no hay búsquedas en curso.
 	 */
 	public static void clearCache() {
-		templateCache.values().forEach(Mat::release);
+		templateCache.values().forEach(CachedTemplate::release);
 		templateCache.clear();
-		templateBytesCache.clear();
 		cacheInitialized = false;
 	}
 
@@ -420,6 +813,22 @@ public class ImageSearchUtil {
 		return searchTemplateMultiple(image, enumTemplate.getTemplate(), topLeftCorner, bottomRightCorner, thresholdPercentage, maxResults);
 	}
 
+	/**
+	 * Buscar template en un {@link Frame} usando directamente el enum EnumTemplates
+	 */
+	public static DTOImageSearchResult buscarTemplate(Frame frame, EnumTemplates enumTemplate,
+			DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double thresholdPercentage) {
+		return buscarTemplate(frame, enumTemplate.getTemplate(), topLeftCorner, bottomRightCorner, thresholdPercentage);
+	}
+
+	/**
+	 * Buscar múltiples templates en un {@link Frame} usando directamente el enum EnumTemplates
+	 */
+	public static List<DTOImageSearchResult> searchTemplateMultiple(Frame frame, EnumTemplates enumTemplate,
+			DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double thresholdPercentage, int maxResults) {
+		return searchTemplateMultiple(frame, enumTemplate.getTemplate(), topLeftCorner, bottomRightCorner, thresholdPercentage, maxResults);
+	}
+
 	/**
 	 * Versión asíncrona usando enum
 	 */
@@ -429,6 +838,72 @@ public class ImageSearchUtil {
 		return searchTemplateMultipleAsync(image, enumTemplate.getTemplate(), topLeftCorner, bottomRightCorner, thresholdPercentage, maxResults);
 	}
 
+	/**
+	 * Searches several templates in the same {@link Frame}, matching them in parallel on the OpenCV thread pool.
+	 *
+	 * @param frame               decoded screen snapshot, must stay open until this method returns
+	 * @param templates           templates to search
+	 * @param topLeftCorner       upper left corner of the ROI
+	 * @param bottomRightCorner   lower right corner of the ROI
+	 * @param thresholdPercentage match threshold as a percentage (0 to 100)
+	 * @return one result per template, in the order of {@code templates}
+	 */
+	public static List<DTOTemplateSearchResult> searchTemplates(Frame frame, List<EnumTemplates> templates,
+			DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double thresholdPercentage) {
+		List<CompletableFuture<DTOImageSearchResult>> futures = new ArrayList<>(templates.size());
+		for (EnumTemplates template : templates) {
+			futures.add(CompletableFuture.supplyAsync(() -> buscarTemplate(frame, template, topLeftCorner, bottomRightCorner, thresholdPercentage), openCVThreadPool));
+		}
+
+		List<DTOTemplateSearchResult> results = new ArrayList<>(templates.size());
+		for (int i = 0; i < templates.size(); i++) {
+			results.add(new DTOTemplateSearchResult(templates.get(i), futures.get(i).join()));
+		}
+		return results;
+	}
+
+	/**
+	 * Searches several templates in the same {@link Frame} and returns the first one found in priority order.
+	 * <p>
+	 * Templates are matched in parallel. As soon as a template is found, the lower priority ones that have not
+	 * started yet are skipped. Matches already running are allowed to finish before returning, because they
+	 * read the frame.
+	 *
+	 * @param frame               decoded screen snapshot, must stay open until this method returns
+	 * @param templates           templates to search, highest priority first
+	 * @param topLeftCorner       upper left corner of the ROI
+	 * @param bottomRightCorner   lower right corner of the ROI
+	 * @param thresholdPercentage match threshold as a percentage (0 to 100)
+	 * @return the highest priority template found, or a not found result with no template
+	 */
+	public static DTOTemplateSearchResult searchFirstTemplate(Frame frame, List<EnumTemplates> templates,
+			DTOPoint topLeftCorner, DTOPoint bottomRightCorner, double thresholdPercentage) {
+		DTOImageSearchResult notFound = new DTOImageSearchResult(false, null, 0.0);
+		AtomicInteger bestFound = new AtomicInteger(templates.size());
+		List<CompletableFuture<DTOImageSearchResult>> futures = new ArrayList<>(templates.size());
+		for (int i = 0; i < templates.size(); i++) {
+			int priority = i;
+			EnumTemplates template = templates.get(i);
+			futures.add(CompletableFuture.supplyAsync(() -> {
+				if (priority > bestFound.get()) {
+					return notFound; // A higher priority template already matched
+				}
+				DTOImageSearchResult result = buscarTemplate(frame, template, topLeftCorner, bottomRightCorner, thresholdPercentage);
+				if (result.isFound()) {
+					bestFound.accumulateAndGet(priority, Math::min);
+				}
+				return result;
+			}, openCVThreadPool));
+		}
+
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+		int winner = bestFound.get();
+		if (winner < templates.size()) {
+			return new DTOTemplateSearchResult(templates.get(winner), futures.get(winner).join());
+		}
+		return new DTOTemplateSearchResult(null, notFound);
+	}
+
 	/**
 	 * Verifica si el cache está completamente inicializado
 	 */
@@ -439,9 +914,25 @@ public class ImageSearchUtil {
 	/**
 	 * Obtiene estadísticas del cache
 	 */
-	public static String getCacheStats() {
-		return String.format("Templates en cache: %d/%d, Bytes cache: %d",
-			templateCache.size(), EnumTemplates.values().length, templateBytesCache.size());
+	public static CacheStats getCacheStats() {
+		long bytes = templateCache.values().stream().mapToLong(CachedTemplate::getSizeInBytes).sum();
+		return new CacheStats(cacheHits.sum(), cacheMisses.sum(), templateCache.size(), bytes);
+	}
+
+	/**
+	 * Snapshot of the template cache counters.
+	 *
+	 * @param hits      lookups served from the cache
+	 * @param misses    lookups that had to decode the template
+	 * @param templates templates currently cached
+	 * @param bytes     native memory held by the cached templates
+	 */
+	public record CacheStats(long hits, long misses, int templates, long bytes) {
+
+		public double hitRatio() {
+			long lookups = hits + misses;
+			return lookups == 0 ? 0 : (double) hits / lookups;
+		}
 	}
 
 	public static void loadNativeLibrary(String resourcePath) throws IOException {
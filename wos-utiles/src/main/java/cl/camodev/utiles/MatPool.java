@@ -0,0 +1,288 @@
+package cl.camodev.utiles;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-thread pool of scratch Mats keyed by size and type.
+ * <p>
+ * Template matching allocates result and scratch matrices of the same few shapes over and over. Borrowing
+ * them from here reuses the native buffers instead, which keeps the native heap from fragmenting on bots that
+ * run for weeks. Each thread keeps at most {@value #MAX_IDLE_PER_SHAPE} idle Mats per shape and
+ * {@value #MAX_IDLE_BYTES_PER_THREAD} bytes in total, and all threads together at most
+ * {@value #MAX_IDLE_BYTES} bytes. When a recycled Mat does not fit, the idle Mats of the shapes the thread
+ * used least recently are released to make room, so shapes that stop being used do not hold the budget forever.
+ * <p>
+ * A borrowed Mat must be given back with {@link #recycle(Mat)} on the thread that borrowed it, never released.
+ * In debug mode, the pool remembers where every outstanding Mat was borrowed and periodically logs the ones
+ * held for too long. The idle Mats of threads that have ended are released the next time the global budget
+ * runs out, and whenever {@link #getStats()} is called.
+ */
+public final class MatPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(MatPool.class);
+	private static final int MAX_IDLE_PER_SHAPE = 2;
+	private static final long MAX_IDLE_BYTES_PER_THREAD = 16L * 1024 * 1024;
+	private static final long MAX_IDLE_BYTES = 64L * 1024 * 1024;
+	private static final long LEAK_CHECK_INTERVAL_MS = 60000;
+	private static final long LEAK_AGE_MS = 60000;
+
+	private static final ThreadLocal<ThreadPool> pools = ThreadLocal.withInitial(ThreadPool::new);
+	// Every thread's pool, so those of dead threads can be released
+	private static final Set<ThreadPool> threadPools = ConcurrentHashMap.newKeySet();
+
+	private static final LongAdder borrows = new LongAdder();
+	private static final LongAdder reuses = new LongAdder();
+	private static final LongAdder discards = new LongAdder();
+	private static final AtomicLong outstanding = new AtomicLong();
+	private static final AtomicLong idleBytes = new AtomicLong();
+
+	private static final Map<Mat, Borrow> borrowed = Collections.synchronizedMap(new IdentityHashMap<>());
+	private static volatile boolean leakDetection = false;
+	private static ScheduledExecutorService leakChecker;
+	private static ScheduledFuture<?> leakCheck;
+
+	private MatPool() {
+	}
+
+	/**
+	 * Borrows a Mat of the given shape. Its content is undefined.
+	 *
+	 * @param rows rows
+	 * @param cols columns
+	 * @param type OpenCV type, such as {@code CvType.CV_32FC1}
+	 * @return a Mat to give back with {@link #recycle(Mat)}
+	 */
+	public static Mat acquire(int rows, int cols, int type) {
+		borrows.increment();
+		outstanding.incrementAndGet();
+		Mat mat = pools.get().take(key(rows, cols, type));
+		if (mat != null) {
+			reuses.increment();
+		} else {
+			mat = new Mat(rows, cols, type);
+		}
+		if (leakDetection) {
+			borrowed.put(mat, new Borrow(System.currentTimeMillis(), new Throwable("Mat borrowed here")));
+		}
+		return mat;
+	}
+
+	/**
+	 * Gives a borrowed Mat back to this thread's pool, or releases it if the pool is full. Null is ignored.
+	 *
+	 * @param mat Mat obtained from {@link #acquire(int, int, int)}
+	 */
+	public static void recycle(Mat mat) {
+		if (mat == null) {
+			return;
+		}
+		outstanding.decrementAndGet();
+		if (leakDetection) {
+			borrowed.remove(mat);
+		}
+		// Released or reshaped by the caller: the pool cannot rely on its buffer any more
+		if (mat.empty() || !mat.isContinuous()) {
+			discards.increment();
+			mat.release();
+			return;
+		}
+		if (!pools.get().offer(key(mat.rows(), mat.cols(), mat.type()), mat)) {
+			discards.increment();
+			mat.release();
+		}
+	}
+
+	/**
+	 * Releases the idle Mats of every thread that has ended. Their pools are only reachable from here once the
+	 * owner is gone, so no other thread can be using them.
+	 */
+	private static void releaseDeadThreads() {
+		for (ThreadPool pool : threadPools) {
+			if (!pool.owner.isAlive() && threadPools.remove(pool)) {
+				pool.releaseAll();
+			}
+		}
+	}
+
+	/**
+	 * Turns the debug leak detector on or off. While on, Mats held longer than {@value #LEAK_AGE_MS} ms are
+	 * logged with the stack trace of the borrow, once a minute.
+	 *
+	 * @param enabled true to track outstanding Mats
+	 */
+	public static synchronized void setLeakDetection(boolean enabled) {
+		leakDetection = enabled;
+		if (enabled && leakCheck == null) {
+			if (leakChecker == null) {
+				leakChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+					Thread thread = new Thread(r, "mat-pool-leak-check");
+					thread.setDaemon(true);
+					return thread;
+				});
+			}
+			leakCheck = leakChecker.scheduleWithFixedDelay(() -> checkLeaks(LEAK_AGE_MS), LEAK_CHECK_INTERVAL_MS, LEAK_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		} else if (!enabled && leakCheck != null) {
+			leakCheck.cancel(false);
+			leakCheck = null;
+			borrowed.clear();
+		}
+	}
+
+	/**
+	 * Logs every tracked Mat borrowed more than {@code maxAgeMs} ago. Only Mats borrowed while leak detection
+	 * was on are tracked.
+	 *
+	 * @param maxAgeMs age above which an outstanding Mat is reported
+	 * @return number of Mats reported
+	 */
+	public static int checkLeaks(long maxAgeMs) {
+		long now = System.currentTimeMillis();
+		int leaks = 0;
+		synchronized (borrowed) {
+			for (Borrow borrow : borrowed.values()) {
+				if (now - borrow.timestamp() > maxAgeMs) {
+					leaks++;
+					logger.warn("Mat held for {} ms without being recycled", now - borrow.timestamp(), borrow.origin());
+				}
+			}
+		}
+		return leaks;
+	}
+
+	public static PoolStats getStats() {
+		releaseDeadThreads();
+		return new PoolStats(borrows.sum(), reuses.sum(), discards.sum(), outstanding.get(), idleBytes.get());
+	}
+
+	/**
+	 * Snapshot of the pool counters, across all threads.
+	 *
+	 * @param borrows     total {@link #acquire(int, int, int)} calls
+	 * @param reuses      borrows served with a pooled Mat instead of a new allocation
+	 * @param discards    Mats released because the pool was full, they were evicted to make room or were unusable
+	 * @param outstanding Mats currently borrowed
+	 * @param idleBytes   native memory held by idle pooled Mats
+	 */
+	public record PoolStats(long borrows, long reuses, long discards, long outstanding, long idleBytes) {
+
+		public double reuseRatio() {
+			return borrows == 0 ? 0 : (double) reuses / borrows;
+		}
+	}
+
+	private static long key(int rows, int cols, int type) {
+		return ((long) rows << 40) | ((long) cols << 16) | (type & 0xFFFF);
+	}
+
+	private static long sizeOf(Mat mat) {
+		return mat.total() * mat.elemSize();
+	}
+
+	private record Borrow(long timestamp, Throwable origin) {
+	}
+
+	/**
+	 * Idle Mats of one thread. Only its owner thread touches it while alive, so it needs no locking.
+	 */
+	private static final class ThreadPool {
+		private final Thread owner = Thread.currentThread();
+		// Access order: the first shape is the one used least recently
+		private final LinkedHashMap<Long, ArrayDeque<Mat>> idle = new LinkedHashMap<>(16, 0.75f, true);
+		private long bytes = 0;
+
+		private ThreadPool() {
+			threadPools.add(this);
+		}
+
+		private Mat take(long key) {
+			ArrayDeque<Mat> mats = idle.get(key);
+			Mat mat = mats == null ? null : mats.pollFirst();
+			if (mat != null) {
+				bytes -= sizeOf(mat);
+				idleBytes.addAndGet(-sizeOf(mat));
+			}
+			return mat;
+		}
+
+		private boolean offer(long key, Mat mat) {
+			long size = sizeOf(mat);
+			ArrayDeque<Mat> mats = idle.get(key);
+			if (size > MAX_IDLE_BYTES_PER_THREAD || (mats != null && mats.size() >= MAX_IDLE_PER_SHAPE)) {
+				return false;
+			}
+			while (bytes + size > MAX_IDLE_BYTES_PER_THREAD) {
+				if (!evictEldest(key)) {
+					return false;
+				}
+			}
+			// The global budget is reserved first, then made room for: dead threads, then this thread's oldest shapes
+			if (idleBytes.addAndGet(size) > MAX_IDLE_BYTES) {
+				releaseDeadThreads();
+				while (idleBytes.get() > MAX_IDLE_BYTES) {
+					if (!evictEldest(key)) {
+						idleBytes.addAndGet(-size);
+						return false;
+					}
+				}
+			}
+			idle.computeIfAbsent(key, k -> new ArrayDeque<>()).addFirst(mat);
+			bytes += size;
+			return true;
+		}
+
+		/**
+		 * Releases one idle Mat of the least recently used shape other than {@code keep}.
+		 *
+		 * @return false if there was nothing to evict
+		 */
+		private boolean evictEldest(long keep) {
+			Iterator<Map.Entry<Long, ArrayDeque<Mat>>> entries = idle.entrySet().iterator();
+			while (entries.hasNext()) {
+				Map.Entry<Long, ArrayDeque<Mat>> entry = entries.next();
+				if (entry.getKey() == keep) {
+					continue;
+				}
+				Mat mat = entry.getValue().pollLast();
+				if (entry.getValue().isEmpty()) {
+					entries.remove();
+				}
+				if (mat != null) {
+					bytes -= sizeOf(mat);
+					idleBytes.addAndGet(-sizeOf(mat));
+					discards.increment();
+					mat.release();
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private void releaseAll() {
+			for (ArrayDeque<Mat> mats : idle.values()) {
+				for (Mat mat : mats) {
+					mat.release();
+				}
+			}
+			idle.clear();
+			idleBytes.addAndGet(-bytes);
+			bytes = 0;
+		}
+	}
+}
@@ -0,0 +1,179 @@
+package cl.camodev.utiles;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import cl.camodev.wosbot.ot.DTOImageSearchResult;
+import cl.camodev.wosbot.ot.DTOPoint;
+
+/**
+ * Bounded LRU memo of best-match results, keyed by a hash of the searched pixels, the template, the threshold
+ * and the ROI.
+ * <p>
+ * Tasks often search the same template again on a screen that has not changed, for instance while retrying
+ * a button or right after a tap that did nothing. Screen captures are exact copies of the framebuffer, so an
+ * unchanged screen hashes the same and the previous result can be returned without matching again.
+ * <p>
+ * Every byte of the ROI is hashed, so a single changed pixel, such as a timer digit or a red dot, is a miss.
+ * The ROI is copied natively in bands of rows into a direct buffer and hashed from there, never through the Java
+ * heap; a full 720x1280 screen costs about a millisecond, far less than the match it saves.
+ * <p>
+ * One memo is meant to be attached to the frames of a single profile, see {@link Frame#setMatchMemo(MatchMemo)},
+ * so profiles never evict each other's entries. It is safe to use from several threads.
+ */
+public final class MatchMemo {
+
+	private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME_3 = 0x165667B19E3779F9L;
+
+	private static final int BAND_BYTES = 256 * 1024;
+
+	// Reused native band buffer, grown only for rows wider than a band
+	private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BAND_BYTES).order(ByteOrder.LITTLE_ENDIAN));
+
+	private record Key(long regionHash, String template, double threshold, int x, int y, int width, int height) {
+	}
+
+	private record Entry(boolean found, int x, int y, double matchPercentage, long computeNanos) {
+	}
+
+	private final int maxEntries;
+	private final LinkedHashMap<Key, Entry> entries;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder savedNanos = new LongAdder();
+	private final LongAdder hashNanos = new LongAdder();
+
+	/**
+	 * @param maxEntries results kept before the least recently used one is evicted
+	 */
+	public MatchMemo(int maxEntries) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+				return size() > MatchMemo.this.maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @return a copy of the memoized result, or null if this search has not been done on these pixels
+	 */
+	DTOImageSearchResult get(long regionHash, String template, double threshold, Rect roi) {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(new Key(regionHash, template, threshold, roi.x, roi.y, roi.width, roi.height));
+		}
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		savedNanos.add(entry.computeNanos());
+		// Results are mutable, so every caller gets its own copy
+		return new DTOImageSearchResult(entry.found(), entry.found() ? new DTOPoint(entry.x(), entry.y()) : null, entry.matchPercentage());
+	}
+
+	/**
+	 * @param computeNanos time the search took, credited as saved on every later hit
+	 */
+	void put(long regionHash, String template, double threshold, Rect roi, DTOImageSearchResult result, long computeNanos) {
+		DTOPoint point = result.getPoint();
+		Entry entry = new Entry(result.isFound() && point != null, point != null ? point.getX() : 0, point != null ? point.getY() : 0, result.getMatchPercentage(), computeNanos);
+		synchronized (entries) {
+			entries.put(new Key(regionHash, template, threshold, roi.x, roi.y, roi.width, roi.height), entry);
+		}
+	}
+
+	/**
+	 * 64-bit hash of every byte of a region, in the style of xxHash64 with a single lane. It only has to tell
+	 * captures apart, not resist crafted input.
+	 */
+	long hashRegion(Mat image, Rect roi) {
+		long start = System.nanoTime();
+		Mat region = image.submat(roi);
+		try {
+			int rowBytes = (int) (roi.width * image.elemSize());
+			ByteBuffer buffer = buffers.get();
+			if (buffer.capacity() < rowBytes) {
+				buffer = ByteBuffer.allocateDirect(rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+				buffers.set(buffer);
+			}
+			int bandRows = buffer.capacity() / rowBytes;
+
+			long hash = PRIME_3 + (long) rowBytes * roi.height;
+			for (int row = 0; row < roi.height; row += bandRows) {
+				int rows = Math.min(bandRows, roi.height - row);
+				// The header shares the buffer's memory, so copyTo writes the band straight into it
+				Mat band = region.rowRange(row, row + rows);
+				Mat target = new Mat(rows, roi.width, image.type(), buffer);
+				try {
+					band.copyTo(target);
+				} finally {
+					target.release();
+					band.release();
+				}
+
+				int length = rows * rowBytes;
+				int i = 0;
+				for (; i + Long.BYTES <= length; i += Long.BYTES) {
+					long lane = Long.rotateLeft(buffer.getLong(i) * PRIME_2, 31) * PRIME_1;
+					hash = Long.rotateLeft(hash ^ lane, 27) * PRIME_1 + PRIME_3;
+				}
+				for (; i < length; i++) {
+					hash = Long.rotateLeft(hash ^ ((buffer.get(i) & 0xFF) * PRIME_3), 11) * PRIME_1;
+				}
+			}
+			hash ^= hash >>> 33;
+			hash *= PRIME_2;
+			hash ^= hash >>> 29;
+			hash *= PRIME_3;
+			return hash ^ (hash >>> 32);
+		} finally {
+			region.release();
+			hashNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	public MemoStats getStats() {
+		int size;
+		synchronized (entries) {
+			size = entries.size();
+		}
+		return new MemoStats(hits.sum(), misses.sum(), size, savedNanos.sum(), hashNanos.sum());
+	}
+
+	/**
+	 * Snapshot of the memo counters.
+	 *
+	 * @param hits       searches answered from the memo
+	 * @param misses     searches that had to run the match
+	 * @param entries    results currently memoized
+	 * @param savedNanos matching time avoided by the hits
+	 * @param hashNanos  time spent hashing regions, the price paid for the hits
+	 */
+	public record MemoStats(long hits, long misses, int entries, long savedNanos, long hashNanos) {
+
+		public double hitRatio() {
+			long lookups = hits + misses;
+			return lookups == 0 ? 0 : (double) hits / lookups;
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package cl.camodev.utiles;
+
+import net.sourceforge.tess4j.ITessAPI.TessPageSegMode;
+
+/**
+ * Engine settings of an OCR read. {@link OcrService} keeps a separate pool of engines for each distinct
+ * configuration, since changing the language means loading other traineddata.
+ *
+ * @param language     traineddata language, such as {@code "eng"}
+ * @param pageSegMode  Tesseract page segmentation mode, see {@link TessPageSegMode}
+ * @param charWhitelist characters the engine may output, or null for any
+ */
+public record OcrConfig(String language, int pageSegMode, String charWhitelist) {
+
+	/** What {@code new Tesseract()} used: English, single block of text, no whitelist. */
+	public static final OcrConfig DEFAULT = new OcrConfig("eng", TessPageSegMode.PSM_SINGLE_BLOCK, null);
+
+	public OcrConfig {
+		if (language == null || language.isBlank()) {
+			throw new IllegalArgumentException("OCR language is required");
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package cl.camodev.utiles;
+
+import java.time.Duration;
+
+/**
+ * Extracts a duration from OCR text, shared by every task that reads a countdown.
+ * <p>
+ * Accepted forms, anywhere in the text: clocks such as {@code 02:03:04} or {@code 03:04} (minutes and seconds),
+ * optionally preceded by days as in {@code 1d 02:03:04}, and unit forms such as {@code 2h 30m},
+ * {@code 45m 10s} or {@code 3 days}. The first expression that parses wins, so labels around the timer, as in
+ * {@code On cooldown: 1d 02:03:04}, are skipped.
+ * <p>
+ * Letters Tesseract commonly reads instead of digits (O for 0, l or I for 1, S for 5, B for 8, Z for 2) are
+ * taken as digits when the nearest character that is not such a letter is a digit or a colon. That way
+ * {@code O2:3O:l5} reads as a clock while words such as {@code Idle} are left alone.
+ * <p>
+ * The parser walks the text by index with no regular expression, and {@link #parseSeconds(CharSequence)} allocates
+ * nothing, so it can run on every OCR read.
+ */
+public final class OcrDurationParser {
+
+	/** Returned by {@link #parseSeconds(CharSequence)} when the text holds no duration. */
+	public static final long INVALID = -1;
+
+	private static final int MAX_NUMBER_DIGITS = 6;
+
+	private OcrDurationParser() {
+	}
+
+	/**
+	 * @param text OCR output, may be null
+	 * @return the duration, or null if the text holds none
+	 */
+	public static Duration parse(CharSequence text) {
+		long seconds = parseSeconds(text);
+		return seconds == INVALID ? null : Duration.ofSeconds(seconds);
+	}
+
+	/**
+	 * @param text OCR output, may be null
+	 * @return the duration in seconds, or {@link #INVALID} if the text holds none
+	 */
+	public static long parseSeconds(CharSequence text) {
+		if (text == null) {
+			return INVALID;
+		}
+		int length = text.length();
+		for (int start = 0; start < length; start++) {
+			// Only at the start of a number that does not continue a clock, so "12:75:00" is not retried as "75:00"
+			if (isDigit(at(text, start)) && !continuesNumber(text, start)) {
+				long seconds = parseFrom(text, start);
+				if (seconds != INVALID) {
+					return seconds;
+				}
+			}
+		}
+		return INVALID;
+	}
+
+	/**
+	 * Parses unit groups ({@code 1d}, {@code 2h}, {@code 3 min}...) until a clock, which ends the duration, or
+	 * anything else.
+	 */
+	private static long parseFrom(CharSequence text, int position) {
+		int length = text.length();
+		long total = 0;
+		boolean parsed = false;
+		while (true) {
+			position = skipSpaces(text, position);
+			if (position >= length || !isDigit(at(text, position))) {
+				break;
+			}
+			long number = 0;
+			int digits = 0;
+			char c;
+			while (position < length && isDigit(c = at(text, position))) {
+				if (++digits > MAX_NUMBER_DIGITS) {
+					return INVALID;
+				}
+				number = number * 10 + (c - '0');
+				position++;
+			}
+			position = skipSpaces(text, position);
+			char unit = position < length ? Character.toLowerCase(at(text, position)) : 0;
+			if (unit == ':') {
+				long clock = parseClock(text, number, position);
+				return clock == INVALID ? INVALID : total + clock;
+			}
+			long factor = switch (unit) {
+				case 'd' -> 86400;
+				case 'h' -> 3600;
+				case 'm' -> 60;
+				case 's' -> 1;
+				default -> INVALID;
+			};
+			if (factor == INVALID) {
+				// A bare number after units, as in "5h 30", ends the duration; alone it is not one
+				return parsed ? total : INVALID;
+			}
+			total += number * factor;
+			parsed = true;
+			// Skip the rest of the unit word: "min", "hours", "days"... but not a letter standing for a digit, as in "1dl2:00:00"
+			position++;
+			while (position < length && Character.isLetter(at(text, position))) {
+				position++;
+			}
+		}
+		return parsed ? total : INVALID;
+	}
+
+	/**
+	 * Parses {@code first:mm[:ss]} from the colon following the first group. Two groups are minutes and
+	 * seconds, three are hours, minutes and seconds.
+	 */
+	private static long parseClock(CharSequence text, long first, int position) {
+		int length = text.length();
+		long total = first;
+		int groups = 1;
+		while (position < length && at(text, position) == ':') {
+			if (groups == 3) {
+				return INVALID;
+			}
+			position = skipSpaces(text, position + 1);
+			long number = 0;
+			int digits = 0;
+			char c;
+			while (position < length && isDigit(c = at(text, position))) {
+				number = number * 10 + (c - '0');
+				position++;
+				digits++;
+			}
+			if (digits == 0 || digits > 2 || number > 59) {
+				return INVALID;
+			}
+			total = total * 60 + number;
+			groups++;
+			position = skipSpaces(text, position);
+		}
+		// h:mm:ss and mm:ss both come out as seconds once every group is shifted in base 60
+		return groups >= 2 ? total : INVALID;
+	}
+
+	private static int skipSpaces(CharSequence text, int position) {
+		while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+			position++;
+		}
+		return position;
+	}
+
+	/**
+	 * Character at {@code index}, with a confusable letter replaced by its digit when it stands next to digits.
+	 */
+	private static char at(CharSequence text, int index) {
+		char c = text.charAt(index);
+		char digit = confusedDigit(c);
+		if (digit == 0) {
+			return c;
+		}
+		return nextIsNumeric(text, index, -1) || nextIsNumeric(text, index, 1) ? digit : c;
+	}
+
+	/**
+	 * Looks past other confusable letters for the nearest character in the given direction.
+	 */
+	private static boolean nextIsNumeric(CharSequence text, int index, int step) {
+		for (int i = index + step; i >= 0 && i < text.length(); i += step) {
+			char c = text.charAt(i);
+			if (confusedDigit(c) == 0) {
+				return isDigit(c) || c == ':';
+			}
+		}
+		return false;
+	}
+
+	private static char confusedDigit(char c) {
+		return switch (c) {
+			case 'O', 'o' -> '0';
+			case 'l', 'I', '|' -> '1';
+			case 'Z', 'z' -> '2';
+			case 'S' -> '5';
+			case 'B' -> '8';
+			default -> 0;
+		};
+	}
+
+	private static boolean continuesNumber(CharSequence text, int start) {
+		if (start == 0) {
+			return false;
+		}
+		char previous = at(text, start - 1);
+		return isDigit(previous) || previous == ':' && start >= 2 && isDigit(at(text, start - 2));
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+}
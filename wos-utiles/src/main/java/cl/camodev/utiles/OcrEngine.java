@@ -0,0 +1,131 @@
+package cl.camodev.utiles;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+import com.sun.jna.Pointer;
+
+import net.sourceforge.tess4j.ITessAPI.TessBaseAPI;
+import net.sourceforge.tess4j.ITessAPI.TessOcrEngineMode;
+import net.sourceforge.tess4j.TessAPI1;
+import net.sourceforge.tess4j.TesseractException;
+import net.sourceforge.tess4j.util.ImageIOHelper;
+
+/**
+ * A Tesseract engine with its traineddata already loaded, leased from {@link OcrService}.
+ * <p>
+ * Only the thread holding the lease may use it. Closing the lease gives the engine back to its pool, it
+ * does not free it.
+ */
+public final class OcrEngine implements AutoCloseable {
+
+	private final OcrConfig config;
+	private final TessBaseAPI handle;
+	private OcrService.EnginePool owner;
+
+	private OcrEngine(OcrConfig config, TessBaseAPI handle) {
+		this.config = config;
+		this.handle = handle;
+	}
+
+	/**
+	 * Creates the native engine and loads its traineddata, the expensive part that pooling avoids repeating.
+	 */
+	static OcrEngine create(String datapath, OcrConfig config) throws TesseractException {
+		TessBaseAPI handle = TessAPI1.TessBaseAPICreate();
+		if (TessAPI1.TessBaseAPIInit2(handle, datapath, config.language(), TessOcrEngineMode.OEM_DEFAULT) != 0) {
+			TessAPI1.TessBaseAPIDelete(handle);
+			throw new TesseractException("Could not initialize Tesseract with language " + config.language() + " from " + datapath);
+		}
+		TessAPI1.TessBaseAPISetPageSegMode(handle, config.pageSegMode());
+		if (config.charWhitelist() != null) {
+			TessAPI1.TessBaseAPISetVariable(handle, "tessedit_char_whitelist", config.charWhitelist());
+		}
+		return new OcrEngine(config, handle);
+	}
+
+	public OcrConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * Recognizes the text of an image.
+	 *
+	 * @param image image to read, usually a small crop of the screen
+	 * @return the recognized text
+	 * @throws TesseractException if recognition fails
+	 */
+	public String recognize(BufferedImage image) throws TesseractException {
+		int bitsPerPixel = image.getColorModel().getPixelSize();
+		ByteBuffer pixels = ImageIOHelper.convertImageData(image);
+		return recognize(pixels, image.getWidth(), image.getHeight(), bitsPerPixel / 8, (image.getWidth() * bitsPerPixel + 7) / 8);
+	}
+
+	/**
+	 * Recognizes the text of an 8-bit grayscale or BGR image straight from its native buffer, with no copy on the
+	 * Java side. Tesseract copies the pixels when the image is set, so the Mat may be released as soon as this
+	 * returns.
+	 * <p>
+	 * BGR pixels are passed in their memory order, as tess4j did with the {@code TYPE_3BYTE_BGR} images that
+	 * OCR used to read.
+	 *
+	 * @param image CV_8UC1 or CV_8UC3 image, may be a submat of a larger image
+	 * @return the recognized text
+	 * @throws TesseractException if recognition fails
+	 */
+	public String recognize(Mat image) throws TesseractException {
+		if ((image.type() != CvType.CV_8UC1 && image.type() != CvType.CV_8UC3) || image.empty()) {
+			throw new IllegalArgumentException("OCR expects a non-empty CV_8UC1 or CV_8UC3 image, got " + CvType.typeToString(image.type()));
+		}
+		int bytesPerPixel = (int) image.elemSize();
+		// A submat keeps the row stride of its parent
+		int bytesPerLine = (int) image.step1(0);
+		long length = (long) (image.rows() - 1) * bytesPerLine + (long) image.cols() * bytesPerPixel;
+		ByteBuffer pixels = new Pointer(image.dataAddr()).getByteBuffer(0, length);
+		return recognize(pixels, image.cols(), image.rows(), bytesPerPixel, bytesPerLine);
+	}
+
+	private String recognize(ByteBuffer pixels, int width, int height, int bytesPerPixel, int bytesPerLine) throws TesseractException {
+		if (owner == null) {
+			throw new IllegalStateException("OCR engine used after being returned to its pool");
+		}
+		TessAPI1.TessBaseAPISetImage(handle, pixels, width, height, bytesPerPixel, bytesPerLine);
+		Pointer text = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+		try {
+			if (text == null) {
+				throw new TesseractException("Tesseract returned no text");
+			}
+			return text.getString(0, "UTF-8");
+		} finally {
+			if (text != null) {
+				TessAPI1.TessDeleteText(text);
+			}
+			// Frees the recognition results but keeps the traineddata loaded
+			TessAPI1.TessBaseAPIClear(handle);
+		}
+	}
+
+	void lease(OcrService.EnginePool pool) {
+		this.owner = pool;
+	}
+
+	/**
+	 * Gives the engine back to its pool.
+	 */
+	@Override
+	public void close() {
+		OcrService.EnginePool pool = owner;
+		if (pool != null) {
+			owner = null;
+			pool.giveBack(this);
+		}
+	}
+
+	void destroy() {
+		TessAPI1.TessBaseAPIEnd(handle);
+		TessAPI1.TessBaseAPIDelete(handle);
+	}
+}
@@ -0,0 +1,98 @@
+package cl.camodev.utiles;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+import net.sourceforge.tess4j.ITessAPI.TessPageSegMode;
+
+/**
+ * Kinds of screen region read with OCR, each with the preprocessing and engine settings that suit it.
+ * <p>
+ * The game draws light text over dark, textured panels, which Tesseract reads poorly as is. Profiles other
+ * than {@link #TEXT} upscale the crop, invert it when the background is dark so the text ends up dark on light,
+ * binarize it with an adaptive threshold and pad it with a white border. The whitelist then keeps Tesseract
+ * from answering with characters that cannot appear in the region.
+ */
+public enum OcrProfile {
+	// @formatter:off
+	/** Raw color crop with the default engine, as every read was done before profiles existed. */
+	TEXT(OcrConfig.DEFAULT, 1, false, false),
+	/** Countdowns such as {@code 02:03:04} or {@code 1d 02:03:04}. */
+	TIMER(new OcrConfig("eng", TessPageSegMode.PSM_SINGLE_LINE, "0123456789:d"), 2, true, true),
+	/** Counters and ratios such as {@code 1234} or {@code 85/100}. */
+	INTEGER(new OcrConfig("eng", TessPageSegMode.PSM_SINGLE_LINE, "0123456789/"), 2, true, true),
+	/** A short status line, a word such as {@code Idle} or {@code Completed} optionally followed by a timer. */
+	STATUS_WORD(new OcrConfig("eng", TessPageSegMode.PSM_SINGLE_LINE, "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789: "), 2, true, true);
+	// @formatter:on
+
+	private static final int BLOCK_SIZE = 31;
+	private static final double THRESHOLD_OFFSET = 10;
+	private static final int PADDING = 8;
+
+	private final OcrConfig config;
+	private final int upscale;
+	private final boolean invert;
+	private final boolean threshold;
+
+	/**
+	 * @param config    engine settings
+	 * @param upscale   factor the crop is enlarged by, 1 to keep its size
+	 * @param invert    invert the crop when its background is dark
+	 * @param threshold binarize with an adaptive threshold and pad with a white border
+	 */
+	OcrProfile(OcrConfig config, int upscale, boolean invert, boolean threshold) {
+		this.config = config;
+		this.upscale = upscale;
+		this.invert = invert;
+		this.threshold = threshold;
+	}
+
+	public OcrConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * @return false if the crop is read as captured, in color
+	 */
+	boolean preprocesses() {
+		return upscale > 1 || invert || threshold;
+	}
+
+	/**
+	 * Runs the preprocessing chain.
+	 *
+	 * @param gray CV_8UC1 crop, left untouched
+	 * @return a new CV_8UC1 image ready for the engine, to be given back with {@link MatPool#recycle(Mat)}; or
+	 *         {@code gray} itself when this profile does no preprocessing
+	 */
+	Mat prepare(Mat gray) {
+		if (!preprocesses()) {
+			return gray;
+		}
+		Mat image = MatPool.acquire(gray.rows() * upscale, gray.cols() * upscale, CvType.CV_8UC1);
+		if (upscale > 1) {
+			Imgproc.resize(gray, image, new Size(gray.cols() * upscale, gray.rows() * upscale), 0, 0, Imgproc.INTER_CUBIC);
+		} else {
+			gray.copyTo(image);
+		}
+		// Tesseract expects dark text on a light background
+		if (invert && Core.mean(image).val[0] < 128) {
+			Core.bitwise_not(image, image);
+		}
+		if (!threshold) {
+			return image;
+		}
+
+		Mat binary = MatPool.acquire(image.rows(), image.cols(), CvType.CV_8UC1);
+		Imgproc.adaptiveThreshold(image, binary, 255, Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C, Imgproc.THRESH_BINARY, BLOCK_SIZE, THRESHOLD_OFFSET);
+		MatPool.recycle(image);
+		Mat padded = MatPool.acquire(binary.rows() + 2 * PADDING, binary.cols() + 2 * PADDING, CvType.CV_8UC1);
+		Core.copyMakeBorder(binary, padded, PADDING, PADDING, PADDING, PADDING, Core.BORDER_CONSTANT, new Scalar(255));
+		MatPool.recycle(binary);
+		return padded;
+	}
+}
@@ -0,0 +1,287 @@
+package cl.camodev.utiles;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.sourceforge.tess4j.TesseractException;
+
+/**
+ * Pools of warmed-up Tesseract engines, one pool per {@link OcrConfig}.
+ * <p>
+ * Creating an engine loads its traineddata, which takes hundreds of milliseconds, while reading a timer or a
+ * counter takes a few. Engines are therefore created lazily, at most {@link #setMaxEnginesPerConfig(int)} per
+ * configuration, and leased to profile threads one at a time. A thread that finds every engine busy waits for
+ * one to be returned; the time spent waiting is reported by {@link #getStats()}.
+ * <p>
+ * Timers are read by the {@link GlyphRecognizer} first, which takes microseconds; Tesseract is only used when
+ * the glyphs are not trusted, and its reads teach the recognizer the glyphs it is missing. One confident glyph
+ * read in {@value #GLYPH_VERIFY_EVERY} is read by Tesseract as well, so a sample learned from a misread is
+ * caught and evicted instead of being trusted forever.
+ */
+public final class OcrService {
+
+	private static final Logger logger = LoggerFactory.getLogger(OcrService.class);
+	private static final String DATAPATH = "lib/tesseract";
+	private static final long LEASE_TIMEOUT_MS = 30000;
+	private static final long SLOW_WAIT_MS = 100;
+	private static final double GLYPH_MIN_CONFIDENCE = 0.85;
+	private static final int GLYPH_VERIFY_EVERY = 50;
+
+	private static final ConcurrentHashMap<OcrConfig, EnginePool> pools = new ConcurrentHashMap<>();
+	private static volatile int maxEnginesPerConfig = 3;
+
+	private static final LongAdder leases = new LongAdder();
+	private static final LongAdder waits = new LongAdder();
+	private static final LongAdder waitNanos = new LongAdder();
+	private static final LongAdder created = new LongAdder();
+	private static final LongAdder glyphReads = new LongAdder();
+	private static final LongAdder glyphFallbacks = new LongAdder();
+
+	private static final GlyphRecognizer glyphs = new GlyphRecognizer();
+	private static final AtomicLong confidentGlyphReads = new AtomicLong();
+
+	private OcrService() {
+	}
+
+	/**
+	 * Leases an engine for the given configuration, creating it if the pool is not full yet. The caller must
+	 * close it, ideally with try-with-resources, to give it back.
+	 *
+	 * @param config engine settings
+	 * @return an engine for the exclusive use of the calling thread
+	 * @throws TesseractException if the engine cannot be created or none is returned in time
+	 */
+	public static OcrEngine lease(OcrConfig config) throws TesseractException {
+		leases.increment();
+		EnginePool pool = pools.computeIfAbsent(config, EnginePool::new);
+		OcrEngine engine = pool.take();
+		engine.lease(pool);
+		return engine;
+	}
+
+	/**
+	 * Recognizes an image with an engine of the default configuration.
+	 */
+	public static String recognize(BufferedImage image) throws TesseractException {
+		try (OcrEngine engine = lease(OcrConfig.DEFAULT)) {
+			return engine.recognize(image);
+		}
+	}
+
+	/**
+	 * Recognizes an image region with an engine of the default configuration, without preprocessing.
+	 *
+	 * @param region CV_8UC1 or CV_8UC3 (BGR) image, usually a submat of a {@link Frame}
+	 * @return the recognized text
+	 * @throws TesseractException if recognition fails
+	 */
+	public static String recognize(Mat region) throws TesseractException {
+		return recognize(region, OcrProfile.TEXT);
+	}
+
+	/**
+	 * Recognizes an image region with the preprocessing and engine of a profile. Profiles that preprocess
+	 * convert BGR images to grayscale into a pooled scratch Mat first; {@link OcrProfile#TEXT} reads the region
+	 * in place, in color, as OCR always did.
+	 *
+	 * @param region  CV_8UC1 or CV_8UC3 (BGR) image, usually a submat of a {@link Frame}
+	 * @param profile kind of text the region holds
+	 * @return the recognized text
+	 * @throws TesseractException if recognition fails
+	 */
+	public static String recognize(Mat region, OcrProfile profile) throws TesseractException {
+		if (!profile.preprocesses()) {
+			try (OcrEngine engine = lease(profile.getConfig())) {
+				return engine.recognize(region);
+			}
+		}
+		Mat gray = toGray(region);
+		try {
+			return recognizeGray(gray, profile);
+		} finally {
+			if (gray != region) {
+				MatPool.recycle(gray);
+			}
+		}
+	}
+
+	private static String recognizeGray(Mat gray, OcrProfile profile) throws TesseractException {
+		Mat prepared = profile.prepare(gray);
+		try (OcrEngine engine = lease(profile.getConfig())) {
+			return engine.recognize(prepared);
+		} finally {
+			if (prepared != gray) {
+				MatPool.recycle(prepared);
+			}
+		}
+	}
+
+	private static Mat toGray(Mat region) {
+		if (region.type() == CvType.CV_8UC1) {
+			return region;
+		}
+		Mat gray = MatPool.acquire(region.rows(), region.cols(), CvType.CV_8UC1);
+		PixelConverter.bgrToGray(region, gray);
+		return gray;
+	}
+
+	/**
+	 * Reads a countdown such as {@code 02:03:04} or {@code 1d 02:03:04}. The glyph recognizer answers when it
+	 * is confident; otherwise Tesseract reads the region and the glyph atlas learns from the result. When both
+	 * read a countdown and disagree, Tesseract wins and the glyph samples behind the other read are evicted.
+	 *
+	 * @param region CV_8UC1 or CV_8UC3 (BGR) image holding only the timer
+	 * @return the countdown, or null if the region does not hold one
+	 * @throws TesseractException if the fallback recognition fails
+	 */
+	public static Duration readDuration(Mat region) throws TesseractException {
+		Mat gray = toGray(region);
+		try {
+			GlyphRecognizer.Reading reading = glyphs.recognize(gray);
+			boolean confident = reading.duration() != null && reading.confidence() >= GLYPH_MIN_CONFIDENCE;
+			if (confident && confidentGlyphReads.incrementAndGet() % GLYPH_VERIFY_EVERY != 0) {
+				glyphReads.increment();
+				return reading.duration();
+			}
+
+			glyphFallbacks.increment();
+			String text = recognizeGray(gray, OcrProfile.TIMER);
+			Duration duration = OcrDurationParser.parse(text);
+			if (duration == null) {
+				return confident ? reading.duration() : null;
+			}
+			if (reading.duration() != null && !reading.duration().equals(duration)) {
+				int evicted = glyphs.correct(gray, text);
+				logger.debug("Glyph read \"{}\" ({}) disagrees with Tesseract \"{}\", {} samples evicted", reading.text(), reading.confidence(), text.trim(), evicted);
+			} else if (!confident) {
+				glyphs.learn(gray, text);
+			}
+			return duration;
+		} finally {
+			if (gray != region) {
+				MatPool.recycle(gray);
+			}
+		}
+	}
+
+	/**
+	 * Creates one engine for the configuration ahead of time, so the first read does not pay for it.
+	 */
+	public static void warmUp(OcrConfig config) {
+		try {
+			// Leased and given back right away: the engine stays idle in the pool
+			lease(config).close();
+			logger.info("OCR engine ready for {}", config);
+		} catch (TesseractException | RuntimeException | LinkageError e) {
+			logger.warn("Could not warm up the OCR engine for {}: {}", config, e.getMessage());
+		}
+	}
+
+	/**
+	 * Bounds the engines of each configuration. Pools that already hold more engines shrink as they are
+	 * returned.
+	 *
+	 * @param max engines per configuration, at least 1
+	 */
+	public static void setMaxEnginesPerConfig(int max) {
+		maxEnginesPerConfig = Math.max(1, max);
+	}
+
+	public static OcrStats getStats() {
+		return new OcrStats(leases.sum(), created.sum(), waits.sum(), waitNanos.sum(), glyphReads.sum(), glyphFallbacks.sum());
+	}
+
+	/**
+	 * Snapshot of the engine pool counters, across all configurations.
+	 *
+	 * @param leases         engines leased
+	 * @param created        engines created, each one a traineddata load
+	 * @param waits          leases that had to wait for a busy engine
+	 * @param waitNanos      total time spent waiting
+	 * @param glyphReads     timers read by the glyph recognizer alone
+	 * @param glyphFallbacks timers that needed Tesseract
+	 */
+	public record OcrStats(long leases, long created, long waits, long waitNanos, long glyphReads, long glyphFallbacks) {
+	}
+
+	/**
+	 * Engines of one configuration.
+	 */
+	static final class EnginePool {
+		private final OcrConfig config;
+		private final LinkedBlockingDeque<OcrEngine> idle = new LinkedBlockingDeque<>();
+		private final AtomicInteger size = new AtomicInteger();
+
+		private EnginePool(OcrConfig config) {
+			this.config = config;
+		}
+
+		private OcrEngine take() throws TesseractException {
+			OcrEngine engine = idle.pollFirst();
+			if (engine != null) {
+				return engine;
+			}
+			if (reserveSlot()) {
+				try {
+					engine = OcrEngine.create(DATAPATH, config);
+					created.increment();
+					return engine;
+				} catch (TesseractException | RuntimeException | LinkageError e) {
+					size.decrementAndGet();
+					throw e;
+				}
+			}
+
+			long start = System.nanoTime();
+			try {
+				engine = idle.pollFirst(LEASE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new TesseractException("Interrupted while waiting for an OCR engine", e);
+			} finally {
+				long waited = System.nanoTime() - start;
+				waits.increment();
+				waitNanos.add(waited);
+				if (TimeUnit.NANOSECONDS.toMillis(waited) >= SLOW_WAIT_MS) {
+					logger.debug("Waited {} ms for an OCR engine for {}", TimeUnit.NANOSECONDS.toMillis(waited), config);
+				}
+			}
+			if (engine == null) {
+				throw new TesseractException("No OCR engine available for " + config + " after " + LEASE_TIMEOUT_MS + " ms");
+			}
+			return engine;
+		}
+
+		private boolean reserveSlot() {
+			int current;
+			do {
+				current = size.get();
+				if (current >= maxEnginesPerConfig) {
+					return false;
+				}
+			} while (!size.compareAndSet(current, current + 1));
+			return true;
+		}
+
+		void giveBack(OcrEngine engine) {
+			if (size.get() > maxEnginesPerConfig) {
+				size.decrementAndGet();
+				engine.destroy();
+				return;
+			}
+			// Most recently used first, its memory is more likely to be warm
+			idle.offerFirst(engine);
+		}
+	}
+}
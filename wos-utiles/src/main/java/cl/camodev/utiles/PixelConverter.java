@@ -0,0 +1,163 @@
+package cl.camodev.utiles;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Converts raw framebuffer pixels into OpenCV BGR or 8-bit grayscale images.
+ * <p>
+ * The common layouts (RGBA 8888, RGBX 8888, BGRA 8888 and RGB 565) are copied once into a pooled
+ * per-thread Mat and converted by OpenCV's native, SIMD-optimised color conversion. Any other layout
+ * goes through a scalar kernel driven by the channel offsets, writing into a pooled per-thread buffer.
+ * Destination Mats are reallocated only when their size or type changes, so callers that keep them
+ * around convert without allocating.
+ */
+public final class PixelConverter {
+
+	/**
+	 * Framebuffer layouts with a dedicated conversion.
+	 */
+	public enum PixelFormat {
+		// @formatter:off
+		RGBA_8888(CvType.CV_8UC4, Imgproc.COLOR_RGBA2BGR, Imgproc.COLOR_RGBA2GRAY),
+		RGBX_8888(CvType.CV_8UC4, Imgproc.COLOR_RGBA2BGR, Imgproc.COLOR_RGBA2GRAY),
+		BGRA_8888(CvType.CV_8UC4, Imgproc.COLOR_BGRA2BGR, Imgproc.COLOR_BGRA2GRAY),
+		RGB_565(CvType.CV_8UC2, Imgproc.COLOR_BGR5652BGR, Imgproc.COLOR_BGR5652GRAY),
+		GENERIC(-1, -1, -1);
+		// @formatter:on
+
+		private final int rawType;
+		private final int toBgr;
+		private final int toGray;
+
+		PixelFormat(int rawType, int toBgr, int toGray) {
+			this.rawType = rawType;
+			this.toBgr = toBgr;
+			this.toGray = toGray;
+		}
+	}
+
+	/**
+	 * Channel layout of a framebuffer, as reported by the device. Offsets are in bits, -1 when the
+	 * channel is absent.
+	 */
+	public record PixelLayout(int bpp, int redOffset, int greenOffset, int blueOffset, int alphaOffset, int alphaLength) {
+
+		public PixelFormat format() {
+			if (bpp == 32 && greenOffset == 8) {
+				if (redOffset == 0 && blueOffset == 16) {
+					return alphaLength > 0 ? PixelFormat.RGBA_8888 : PixelFormat.RGBX_8888;
+				}
+				if (blueOffset == 0 && redOffset == 16) {
+					return PixelFormat.BGRA_8888;
+				}
+			} else if (bpp == 16 && redOffset == 11 && greenOffset == 5 && blueOffset == 0) {
+				// OpenCV names little-endian 5-6-5 with blue in the low bits "BGR565"
+				return PixelFormat.RGB_565;
+			}
+			return PixelFormat.GENERIC;
+		}
+	}
+
+	private static final ThreadLocal<Mat> rawScratch = new ThreadLocal<>();
+	private static final ThreadLocal<byte[]> byteScratch = new ThreadLocal<>();
+
+	private PixelConverter() {
+	}
+
+	/**
+	 * Converts a framebuffer into a BGR image.
+	 *
+	 * @param data   raw pixels
+	 * @param width  image width
+	 * @param height image height
+	 * @param layout channel layout of {@code data}
+	 * @param dst    destination, (re)allocated as CV_8UC3 if needed
+	 */
+	public static void toBgr(byte[] data, int width, int height, PixelLayout layout, Mat dst) {
+		dst.create(height, width, CvType.CV_8UC3);
+		PixelFormat format = layout.format();
+		if (format != PixelFormat.GENERIC) {
+			Imgproc.cvtColor(wrapRaw(data, width, height, format), dst, format.toBgr);
+			return;
+		}
+
+		byte[] bgr = borrowBytes(width * height * 3);
+		int bytesPerPixel = layout.bpp() / 8;
+		int red = layout.redOffset() / 8, green = layout.greenOffset() / 8, blue = layout.blueOffset() / 8;
+		boolean hasRed = layout.redOffset() >= 0, hasGreen = layout.greenOffset() >= 0, hasBlue = layout.blueOffset() >= 0;
+		for (int src = 0, out = 0, end = width * height * bytesPerPixel; src < end; src += bytesPerPixel, out += 3) {
+			bgr[out] = hasBlue ? data[src + blue] : 0;
+			bgr[out + 1] = hasGreen ? data[src + green] : 0;
+			bgr[out + 2] = hasRed ? data[src + red] : 0;
+		}
+		dst.put(0, 0, bgr);
+	}
+
+	/**
+	 * Converts a framebuffer into an 8-bit grayscale image, for consumers such as OCR that do not
+	 * need color.
+	 *
+	 * @param data   raw pixels
+	 * @param width  image width
+	 * @param height image height
+	 * @param layout channel layout of {@code data}
+	 * @param dst    destination, (re)allocated as CV_8UC1 if needed
+	 */
+	public static void toGray(byte[] data, int width, int height, PixelLayout layout, Mat dst) {
+		dst.create(height, width, CvType.CV_8UC1);
+		PixelFormat format = layout.format();
+		if (format != PixelFormat.GENERIC) {
+			Imgproc.cvtColor(wrapRaw(data, width, height, format), dst, format.toGray);
+			return;
+		}
+
+		byte[] gray = borrowBytes(width * height);
+		int bytesPerPixel = layout.bpp() / 8;
+		int red = layout.redOffset() / 8, green = layout.greenOffset() / 8, blue = layout.blueOffset() / 8;
+		boolean hasRed = layout.redOffset() >= 0, hasGreen = layout.greenOffset() >= 0, hasBlue = layout.blueOffset() >= 0;
+		for (int src = 0, out = 0, end = width * height * bytesPerPixel; src < end; src += bytesPerPixel, out++) {
+			int r = hasRed ? data[src + red] & 0xFF : 0;
+			int g = hasGreen ? data[src + green] & 0xFF : 0;
+			int b = hasBlue ? data[src + blue] & 0xFF : 0;
+			// BT.601 luma with the 15-bit fixed point weights of OpenCV's COLOR_BGR2GRAY, so GENERIC frames
+			// get the same gray as the other layouts
+			gray[out] = (byte) ((b * 3735 + g * 19235 + r * 9798 + (1 << 14)) >> 15);
+		}
+		dst.put(0, 0, gray);
+	}
+
+	/**
+	 * Converts a BGR image into 8-bit grayscale.
+	 *
+	 * @param bgr source BGR image
+	 * @param dst destination, (re)allocated as CV_8UC1 if needed
+	 */
+	public static void bgrToGray(Mat bgr, Mat dst) {
+		Imgproc.cvtColor(bgr, dst, Imgproc.COLOR_BGR2GRAY);
+	}
+
+	/**
+	 * Copies the raw pixels into this thread's scratch Mat, reallocating it only on size or type change.
+	 */
+	private static Mat wrapRaw(byte[] data, int width, int height, PixelFormat format) {
+		Mat raw = rawScratch.get();
+		if (raw == null) {
+			raw = new Mat();
+			rawScratch.set(raw);
+		}
+		raw.create(height, width, format.rawType);
+		raw.put(0, 0, data);
+		return raw;
+	}
+
+	private static byte[] borrowBytes(int size) {
+		byte[] buffer = byteScratch.get();
+		if (buffer == null || buffer.length != size) {
+			buffer = new byte[size];
+			byteScratch.set(buffer);
+		}
+		return buffer;
+	}
+}
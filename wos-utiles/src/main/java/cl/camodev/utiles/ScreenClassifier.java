@@ -0,0 +1,119 @@
+package cl.camodev.utiles;
+
+import java.util.List;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfDouble;
+
+import cl.camodev.wosbot.console.enumerable.EnumScreenState;
+import cl.camodev.wosbot.console.enumerable.EnumTemplates;
+import cl.camodev.wosbot.ot.DTOPoint;
+import cl.camodev.wosbot.ot.DTOScreenState;
+import cl.camodev.wosbot.ot.DTOTemplateSearchResult;
+
+/**
+ * Tells which screen the game is on from a single frame.
+ * <p>
+ * Each state is identified by an anchor template. The anchors are matched in parallel through
+ * {@link ImageSearchUtil#searchTemplates}. Once an anchor has a stable location hint, a negative answer comes
+ * from its pixel fingerprint and a positive one from a small window match, so a classification takes a few
+ * milliseconds. When no anchor matches, the frame is checked for a popup dimming a known anchor, and for the
+ * flat image of a loading screen.
+ */
+public final class ScreenClassifier {
+
+	private static final double ANCHOR_THRESHOLD = 90.0;
+	private static final double POPUP_MIN_CORRELATION = 0.8;
+	private static final double POPUP_MAX_BRIGHTNESS = 0.75;
+	private static final double LOADING_MAX_STDDEV = 8.0;
+
+	// Reconnect goes first: its dialog is shown over the home screen
+	private static final List<EnumTemplates> ANCHORS = List.of(EnumTemplates.GAME_HOME_RECONNECT, EnumTemplates.GAME_HOME_FURNACE, EnumTemplates.GAME_HOME_WORLD);
+	private static final List<EnumScreenState> ANCHOR_STATES = List.of(EnumScreenState.RECONNECT, EnumScreenState.HOME, EnumScreenState.WORLD);
+
+	static {
+		// The anchors never move, so a failed fingerprint at their usual place means they are not on screen
+		ANCHORS.forEach(anchor -> ImageSearchUtil.registerFixedAnchor(anchor.getTemplate()));
+	}
+
+	private ScreenClassifier() {
+	}
+
+	/**
+	 * @param frame decoded screen snapshot
+	 * @return the most likely screen state
+	 */
+	public static DTOScreenState classify(Frame frame) {
+		List<DTOTemplateSearchResult> results = ImageSearchUtil.searchTemplates(frame, ANCHORS, new DTOPoint(0, 0), new DTOPoint(frame.getWidth(), frame.getHeight()), ANCHOR_THRESHOLD);
+
+		if (results.get(0).isFound()) {
+			return fromAnchor(EnumScreenState.RECONNECT, results.get(0));
+		}
+
+		int best = -1;
+		double bestScore = 0;
+		for (int i = 1; i < results.size(); i++) {
+			if (results.get(i).isFound() && results.get(i).getMatchPercentage() > bestScore) {
+				best = i;
+				bestScore = results.get(i).getMatchPercentage();
+			}
+		}
+		if (best >= 0) {
+			return fromAnchor(ANCHOR_STATES.get(best), results.get(best));
+		}
+
+		for (int i = 1; i < ANCHORS.size(); i++) {
+			DTOScreenState popup = checkDimmedAnchor(frame, ANCHORS.get(i));
+			if (popup != null) {
+				return popup;
+			}
+		}
+
+		double stdDev = thumbnailStdDev(frame);
+		if (stdDev < LOADING_MAX_STDDEV) {
+			return new DTOScreenState(EnumScreenState.LOADING, 1 - stdDev / LOADING_MAX_STDDEV, null);
+		}
+
+		double closest = results.stream().mapToDouble(DTOTemplateSearchResult::getMatchPercentage).max().orElse(0);
+		return new DTOScreenState(EnumScreenState.UNKNOWN, Math.max(0, 1 - closest / 100.0), null);
+	}
+
+	private static DTOScreenState fromAnchor(EnumScreenState state, DTOTemplateSearchResult result) {
+		return new DTOScreenState(state, result.getMatchPercentage() / 100.0, result.getPoint());
+	}
+
+	/**
+	 * A popup darkens the whole screen behind it: the anchor is still at its usual place with the same
+	 * structure, only dimmer.
+	 */
+	private static DTOScreenState checkDimmedAnchor(Frame frame, EnumTemplates anchor) {
+		CachedTemplate template = ImageSearchUtil.getTemplate(anchor.getTemplate());
+		if (template == null) {
+			return null;
+		}
+		int[] center = ImageSearchUtil.getLocationHints().stableCenter(anchor.getTemplate(), frame.getWidth(), frame.getHeight());
+		if (center == null) {
+			return null;
+		}
+		TemplateFingerprint.Comparison comparison = template.getFingerprint().compareAt(frame.getMat(), center[0] - template.getWidth() / 2, center[1] - template.getHeight() / 2);
+		if (comparison != null && comparison.correlation() >= POPUP_MIN_CORRELATION && comparison.brightness() <= POPUP_MAX_BRIGHTNESS) {
+			return new DTOScreenState(EnumScreenState.POPUP, comparison.correlation(), new DTOPoint(center[0], center[1]));
+		}
+		return null;
+	}
+
+	private static double thumbnailStdDev(Frame frame) {
+		Mat thumbnail = FrameDiff.thumbnail(frame, FrameDiff.DEFAULT_DOWNSCALE);
+		MatOfDouble mean = new MatOfDouble();
+		MatOfDouble stdDev = new MatOfDouble();
+		try {
+			Core.meanStdDev(thumbnail, mean, stdDev);
+			return stdDev.toArray()[0];
+		} finally {
+			thumbnail.release();
+			mean.release();
+			stdDev.release();
+		}
+	}
+}
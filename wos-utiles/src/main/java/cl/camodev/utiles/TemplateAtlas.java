@@ -0,0 +1,155 @@
+package cl.camodev.utiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only view of the template atlas written at build time by {@link TemplateAtlasWriter}.
+ * <p>
+ * The atlas is memory-mapped and every template Mat points straight into the mapping, so loading a template
+ * costs neither a PNG decode nor a copy. A jar entry cannot be mapped, so when running from the jar the atlas
+ * is first extracted next to the other native files, in {@code lib/templates}, and re-extracted only when the
+ * bundled one changes.
+ */
+final class TemplateAtlas {
+
+	static final String RESOURCE = "/templates.atlas";
+	static final int MAGIC = 0x54415357; // "WSAT"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 20;
+
+	private static final Logger logger = LoggerFactory.getLogger(TemplateAtlas.class);
+	private static final Path EXTRACTED = Paths.get("lib", "templates", "templates.atlas");
+
+	record Entry(int width, int height, int bgrOffset, int grayOffset) {
+	}
+
+	// Kept referenced for as long as the atlas lives: the template Mats point into it
+	private final MappedByteBuffer mapping;
+	private final Map<String, Entry> entries;
+
+	private TemplateAtlas(MappedByteBuffer mapping, Map<String, Entry> entries) {
+		this.mapping = mapping;
+		this.entries = entries;
+	}
+
+	/**
+	 * Maps the bundled atlas.
+	 *
+	 * @return the atlas, or null if there is none or it cannot be used, in which case templates are decoded
+	 *         from their PNGs as before
+	 */
+	static TemplateAtlas open() {
+		URL resource = TemplateAtlas.class.getResource(RESOURCE);
+		if (resource == null) {
+			logger.info("No template atlas bundled, templates will be decoded individually");
+			return null;
+		}
+		try {
+			Path file = "file".equals(resource.getProtocol()) ? Paths.get(resource.toURI()) : extract();
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				mapping.order(ByteOrder.LITTLE_ENDIAN);
+				return new TemplateAtlas(mapping, readIndex(mapping));
+			}
+		} catch (IOException | URISyntaxException | RuntimeException e) {
+			logger.warn("Could not load the template atlas, templates will be decoded individually: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	Set<String> paths() {
+		return entries.keySet();
+	}
+
+	/**
+	 * @param path template path
+	 * @return the template backed by the mapping, or null if the atlas does not hold it
+	 */
+	CachedTemplate load(String path) {
+		Entry entry = entries.get(path);
+		if (entry == null) {
+			return null;
+		}
+		int pixels = entry.width() * entry.height();
+		Mat bgr = new Mat(entry.height(), entry.width(), CvType.CV_8UC3, mapping.slice(entry.bgrOffset(), pixels * 3));
+		Mat gray = new Mat(entry.height(), entry.width(), CvType.CV_8UC1, mapping.slice(entry.grayOffset(), pixels));
+		return new CachedTemplate(path, bgr, gray);
+	}
+
+	static Map<String, Entry> readIndex(ByteBuffer buffer) throws IOException {
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported template atlas format");
+		}
+		CRC32 crc = new CRC32();
+		crc.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+		if (crc.getValue() != buffer.getLong(8)) {
+			throw new IOException("Template atlas checksum mismatch");
+		}
+
+		int count = buffer.getInt(16);
+		Map<String, Entry> entries = new HashMap<>(count * 2);
+		ByteBuffer index = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(HEADER_SIZE);
+		for (int i = 0; i < count; i++) {
+			byte[] path = new byte[index.getInt()];
+			index.get(path);
+			int width = index.getInt();
+			int height = index.getInt();
+			int bgrOffset = Math.toIntExact(index.getLong());
+			int grayOffset = Math.toIntExact(index.getLong());
+			entries.put(new String(path, StandardCharsets.UTF_8), new Entry(width, height, bgrOffset, grayOffset));
+		}
+		return entries;
+	}
+
+	/**
+	 * Copies the atlas out of the jar unless the extracted copy already has the same header, which includes
+	 * the checksum of the contents.
+	 */
+	private static Path extract() throws IOException {
+		byte[] bundledHeader;
+		try (InputStream in = TemplateAtlas.class.getResourceAsStream(RESOURCE)) {
+			bundledHeader = in.readNBytes(HEADER_SIZE);
+		}
+		if (Files.exists(EXTRACTED)) {
+			byte[] extractedHeader;
+			try (InputStream in = Files.newInputStream(EXTRACTED)) {
+				extractedHeader = in.readNBytes(HEADER_SIZE);
+			}
+			if (Arrays.equals(bundledHeader, extractedHeader)) {
+				return EXTRACTED;
+			}
+		}
+
+		Files.createDirectories(EXTRACTED.getParent());
+		Path tmp = EXTRACTED.resolveSibling(EXTRACTED.getFileName() + ".tmp");
+		try (InputStream in = TemplateAtlas.class.getResourceAsStream(RESOURCE)) {
+			Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+		}
+		Files.move(tmp, EXTRACTED, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		logger.info("Template atlas extracted to {}", EXTRACTED.toAbsolutePath());
+		return EXTRACTED;
+	}
+}
@@ -0,0 +1,227 @@
+package cl.camodev.utiles;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import javax.imageio.ImageIO;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import nu.pattern.OpenCV;
+
+import cl.camodev.wosbot.console.enumerable.EnumTemplates;
+
+/**
+ * Build-time tool that packs every {@link EnumTemplates} image into a single atlas of pre-decoded pixels,
+ * read back at runtime by {@link TemplateAtlas}.
+ * <p>
+ * Images are decoded with ImageIO so the build needs no OpenCV native library. The output matches
+ * {@code Imgcodecs.IMREAD_COLOR}: alpha is dropped, gray images are replicated to three channels and
+ * 16-bit samples are reduced to 8 bits. The gray plane uses the 15-bit fixed-point BT.601 weights of OpenCV's
+ * 8-bit {@code COLOR_BGR2GRAY}.
+ * <p>
+ * Layout, little endian: magic, version, CRC32 of everything after the fixed header, entry count, then one
+ * index entry per template (path, width, height, BGR offset, gray offset) followed by the pixel data.
+ * <p>
+ * Usage: {@code TemplateAtlasWriter <resources directory> <output file>}
+ * <p>
+ * Since the runtime fallback decodes with {@code Imgcodecs.imdecode}, any difference between the two decoders
+ * would shift match scores. {@code TemplateAtlasWriter --verify <resources directory> <atlas file>} decodes every
+ * packed template again with OpenCV and compares it byte for byte with the atlas, BGR and gray planes. It needs
+ * the OpenCV native library, so it is run by hand rather than in the build.
+ */
+public final class TemplateAtlasWriter {
+
+	private record Template(String path, int width, int height, byte[] bgr, byte[] gray) {
+	}
+
+	private TemplateAtlasWriter() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length == 3 && "--verify".equals(args[0])) {
+			verify(Paths.get(args[1]), Paths.get(args[2]));
+			return;
+		}
+		if (args.length != 2) {
+			throw new IllegalArgumentException("Usage: TemplateAtlasWriter [--verify] <resources directory> <output file>");
+		}
+		Path resources = Paths.get(args[0]);
+		Path output = Paths.get(args[1]);
+
+		List<Template> templates = new ArrayList<>();
+		for (EnumTemplates enumTemplate : EnumTemplates.values()) {
+			String path = enumTemplate.getTemplate();
+			Path file = resources.resolve(path.startsWith("/") ? path.substring(1) : path);
+			if (!Files.exists(file)) {
+				System.err.println("[atlas] Template not found, skipped: " + file);
+				continue;
+			}
+			BufferedImage image = ImageIO.read(file.toFile());
+			if (image == null) {
+				System.err.println("[atlas] Template could not be decoded, skipped: " + file);
+				continue;
+			}
+			templates.add(decode(path, image));
+		}
+
+		Files.createDirectories(output.toAbsolutePath().getParent());
+		Files.write(output, pack(templates));
+		System.out.println("[atlas] Packed " + templates.size() + " templates into " + output);
+	}
+
+	private static Template decode(String path, BufferedImage image) {
+		int width = image.getWidth();
+		int height = image.getHeight();
+		byte[] bgr = new byte[width * height * 3];
+		byte[] gray = new byte[width * height];
+		Raster raster = image.getRaster();
+		// getRGB would gamma-convert gray images, so their samples are read from the raster instead
+		boolean grayImage = image.getColorModel().getColorSpace().getType() == ColorSpace.TYPE_GRAY;
+		int graySampleShift = Math.max(0, raster.getSampleModel().getSampleSize(0) - 8);
+
+		for (int y = 0, i = 0; y < height; y++) {
+			for (int x = 0; x < width; x++, i++) {
+				int r, g, b;
+				if (grayImage) {
+					r = g = b = raster.getSample(x, y, 0) >> graySampleShift;
+				} else {
+					int rgb = image.getRGB(x, y);
+					r = (rgb >> 16) & 0xFF;
+					g = (rgb >> 8) & 0xFF;
+					b = rgb & 0xFF;
+				}
+				bgr[i * 3] = (byte) b;
+				bgr[i * 3 + 1] = (byte) g;
+				bgr[i * 3 + 2] = (byte) r;
+				gray[i] = (byte) ((b * 3735 + g * 19235 + r * 9798 + (1 << 14)) >> 15);
+			}
+		}
+		return new Template(path, width, height, bgr, gray);
+	}
+
+	private static byte[] pack(List<Template> templates) {
+		int indexSize = 0;
+		for (Template template : templates) {
+			indexSize += 4 + template.path().getBytes(StandardCharsets.UTF_8).length + 4 + 4 + 8 + 8;
+		}
+		long dataStart = align(TemplateAtlas.HEADER_SIZE + indexSize);
+		long total = dataStart;
+		for (Template template : templates) {
+			total = align(total + template.bgr().length);
+			total = align(total + template.gray().length);
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(total)).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(TemplateAtlas.MAGIC);
+		buffer.putInt(TemplateAtlas.VERSION);
+		buffer.putLong(0); // CRC32, written last
+		buffer.putInt(templates.size());
+
+		long offset = dataStart;
+		for (Template template : templates) {
+			byte[] path = template.path().getBytes(StandardCharsets.UTF_8);
+			long bgrOffset = offset;
+			long grayOffset = align(bgrOffset + template.bgr().length);
+			offset = align(grayOffset + template.gray().length);
+
+			buffer.putInt(path.length);
+			buffer.put(path);
+			buffer.putInt(template.width());
+			buffer.putInt(template.height());
+			buffer.putLong(bgrOffset);
+			buffer.putLong(grayOffset);
+			buffer.put((int) bgrOffset, template.bgr());
+			buffer.put((int) grayOffset, template.gray());
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(buffer.array(), TemplateAtlas.HEADER_SIZE, buffer.capacity() - TemplateAtlas.HEADER_SIZE);
+		buffer.putLong(8, crc.getValue());
+		return buffer.array();
+	}
+
+	/**
+	 * Compares every atlas entry with the output of {@code Imgcodecs.imdecode} and of the runtime gray
+	 * conversion.
+	 *
+	 * @throws IllegalStateException if any template differs
+	 */
+	private static void verify(Path resources, Path atlasFile) throws IOException {
+		OpenCV.loadLocally();
+		ByteBuffer atlas = ByteBuffer.wrap(Files.readAllBytes(atlasFile)).order(ByteOrder.LITTLE_ENDIAN);
+		Map<String, TemplateAtlas.Entry> entries = TemplateAtlas.readIndex(atlas);
+
+		int mismatches = 0;
+		for (Map.Entry<String, TemplateAtlas.Entry> indexed : entries.entrySet()) {
+			String path = indexed.getKey();
+			TemplateAtlas.Entry entry = indexed.getValue();
+			Path file = resources.resolve(path.startsWith("/") ? path.substring(1) : path);
+			MatOfByte encoded = new MatOfByte(Files.readAllBytes(file));
+			Mat bgr = Imgcodecs.imdecode(encoded, Imgcodecs.IMREAD_COLOR);
+			Mat gray = new Mat();
+			PixelConverter.bgrToGray(bgr, gray);
+			try {
+				String difference = compare(atlas, entry, bgr, gray);
+				if (difference != null) {
+					mismatches++;
+					System.err.println("[atlas] " + path + ": " + difference);
+				}
+			} finally {
+				encoded.release();
+				bgr.release();
+				gray.release();
+			}
+		}
+		if (mismatches > 0) {
+			throw new IllegalStateException(mismatches + " of " + entries.size() + " atlas templates differ from imdecode");
+		}
+		System.out.println("[atlas] All " + entries.size() + " templates are byte-identical to imdecode");
+	}
+
+	/**
+	 * @return a description of the first difference, or null if both planes are identical
+	 */
+	private static String compare(ByteBuffer atlas, TemplateAtlas.Entry entry, Mat bgr, Mat gray) {
+		if (bgr.cols() != entry.width() || bgr.rows() != entry.height() || bgr.type() != CvType.CV_8UC3) {
+			return "imdecode gives " + bgr.cols() + "x" + bgr.rows() + " " + CvType.typeToString(bgr.type()) + ", atlas holds " + entry.width() + "x" + entry.height() + " 8UC3";
+		}
+		int pixels = entry.width() * entry.height();
+		String bgrDifference = comparePlane(atlas, entry.bgrOffset(), bgr, pixels * 3, "BGR");
+		return bgrDifference != null ? bgrDifference : comparePlane(atlas, entry.grayOffset(), gray, pixels, "gray");
+	}
+
+	private static String comparePlane(ByteBuffer atlas, int offset, Mat decoded, int length, String plane) {
+		byte[] expected = new byte[length];
+		decoded.get(0, 0, expected);
+		int differing = 0;
+		int maxDelta = 0;
+		for (int i = 0; i < length; i++) {
+			int delta = Math.abs((atlas.get(offset + i) & 0xFF) - (expected[i] & 0xFF));
+			if (delta != 0) {
+				differing++;
+				maxDelta = Math.max(maxDelta, delta);
+			}
+		}
+		return differing == 0 ? null : plane + " differs in " + differing + " of " + length + " bytes, by up to " + maxDelta;
+	}
+
+	private static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+}
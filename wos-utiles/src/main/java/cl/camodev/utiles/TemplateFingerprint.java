@@ -0,0 +1,127 @@
+package cl.camodev.utiles;
+
+import org.opencv.core.Mat;
+
+/**
+ * A handful of pixels sampled from a template on a regular grid, used to tell almost for free whether the
+ * template can be at a given position of an image.
+ * <p>
+ * Both sample sets are compared after subtracting their own mean, like {@code TM_CCOEFF_NORMED} does, so a
+ * uniform brightness change does not count as a difference. The probe is only meant to reject positions
+ * that clearly do not hold the template; anything close is left to the real match.
+ */
+final class TemplateFingerprint {
+
+	private static final int GRID = 4;
+	private static final double MAX_MEAN_DIFFERENCE = 40.0;
+
+	private final int[] offsetX = new int[GRID * GRID];
+	private final int[] offsetY = new int[GRID * GRID];
+	private final double[] samples = new double[GRID * GRID * 3];
+	private final int width;
+	private final int height;
+	private final double mean;
+
+	TemplateFingerprint(Mat bgr) {
+		this.width = bgr.cols();
+		this.height = bgr.rows();
+		byte[] pixel = new byte[3];
+		for (int row = 0; row < GRID; row++) {
+			for (int col = 0; col < GRID; col++) {
+				int i = row * GRID + col;
+				offsetX[i] = (int) ((col + 0.5) * width / GRID);
+				offsetY[i] = (int) ((row + 0.5) * height / GRID);
+				bgr.get(offsetY[i], offsetX[i], pixel);
+				for (int c = 0; c < 3; c++) {
+					samples[i * 3 + c] = pixel[c] & 0xFF;
+				}
+			}
+		}
+		mean = subtractMean(samples);
+	}
+
+	/**
+	 * Structure and brightness of an image position compared with the template.
+	 *
+	 * @param correlation Pearson correlation of the sampled pixels, from -1 to 1
+	 * @param brightness  mean of the image samples divided by the mean of the template samples
+	 */
+	record Comparison(double correlation, double brightness) {
+	}
+
+	/**
+	 * @param image BGR image
+	 * @param left  x of the template's top-left corner in the image
+	 * @param top   y of the template's top-left corner in the image
+	 * @return false if the template clearly is not at that position, true if it may be or the position is
+	 *         partly outside the image
+	 */
+	boolean mayMatchAt(Mat image, int left, int top) {
+		if (left < 0 || top < 0 || left + width > image.cols() || top + height > image.rows()) {
+			return true;
+		}
+		double[] probe = new double[samples.length];
+		sample(image, left, top, probe);
+
+		double difference = 0;
+		for (int i = 0; i < samples.length; i++) {
+			difference += Math.abs(samples[i] - probe[i]);
+		}
+		return difference / samples.length <= MAX_MEAN_DIFFERENCE;
+	}
+
+	/**
+	 * Compares the sampled pixels at a position with the template. A dimmed copy of the template, as seen
+	 * behind a popup overlay, keeps a high correlation but has a brightness well below 1.
+	 *
+	 * @param image BGR image
+	 * @param left  x of the template's top-left corner in the image
+	 * @param top   y of the template's top-left corner in the image
+	 * @return the comparison, or null if the position is partly outside the image
+	 */
+	Comparison compareAt(Mat image, int left, int top) {
+		if (left < 0 || top < 0 || left + width > image.cols() || top + height > image.rows()) {
+			return null;
+		}
+		double[] probe = new double[samples.length];
+		double probeMean = sample(image, left, top, probe);
+
+		double cross = 0, templateEnergy = 0, probeEnergy = 0;
+		for (int i = 0; i < samples.length; i++) {
+			cross += samples[i] * probe[i];
+			templateEnergy += samples[i] * samples[i];
+			probeEnergy += probe[i] * probe[i];
+		}
+		double correlation = templateEnergy == 0 || probeEnergy == 0 ? 0 : cross / Math.sqrt(templateEnergy * probeEnergy);
+		double brightness = mean == 0 ? 1 : probeMean / mean;
+		return new Comparison(correlation, brightness);
+	}
+
+	/**
+	 * Reads the sample pixels at a position into {@code values}, minus their mean.
+	 *
+	 * @return the mean that was subtracted
+	 */
+	private double sample(Mat image, int left, int top, double[] values) {
+		byte[] pixel = new byte[3];
+		for (int i = 0; i < offsetX.length; i++) {
+			image.get(top + offsetY[i], left + offsetX[i], pixel);
+			for (int c = 0; c < 3; c++) {
+				values[i * 3 + c] = pixel[c] & 0xFF;
+			}
+		}
+		return subtractMean(values);
+	}
+
+	private static double subtractMean(double[] values) {
+		double mean = 0;
+		for (double value : values) {
+			mean += value;
+		}
+		mean /= values.length;
+		for (int i = 0; i < values.length; i++) {
+			values[i] -= mean;
+		}
+		return mean;
+	}
+}
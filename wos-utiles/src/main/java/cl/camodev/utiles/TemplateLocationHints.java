@@ -0,0 +1,180 @@
+package cl.camodev.utiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.opencv.core.Rect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers where each template was last found, per screen resolution, so a search can first look
+ * in a small window around that spot before scanning the whole region of interest.
+ * <p>
+ * Hints are stored as the center of the last match and persisted to
+ * {@value #HINTS_FILE} in the working directory, next to the database, so they survive restarts.
+ * Changes are flushed periodically by a daemon thread and once more on shutdown.
+ * <p>
+ * A hint confirmed by {@value #STABLE_HITS} consecutive matches at the same spot is considered stable: the
+ * template is a fixed UI anchor, so a quick look at that spot is enough to tell whether it is on screen.
+ */
+public final class TemplateLocationHints {
+
+	private static final Logger logger = LoggerFactory.getLogger(TemplateLocationHints.class);
+	private static final String HINTS_FILE = "template-hints.properties";
+	private static final long FLUSH_INTERVAL_SECONDS = 30;
+
+	/** Pixels added around the template on every side to build the hint window. */
+	public static final int WINDOW_MARGIN = 45;
+
+	/** Consecutive matches at the same spot after which a hint is stable. */
+	public static final int STABLE_HITS = 3;
+	private static final int SAME_SPOT_TOLERANCE = 2;
+
+	private final Path file;
+	private final ConcurrentHashMap<String, Hint> hints = new ConcurrentHashMap<>();
+	private volatile boolean dirty = false;
+
+	private record Hint(int x, int y, int hits) {
+
+		private boolean isNear(int otherX, int otherY) {
+			return Math.abs(x - otherX) <= SAME_SPOT_TOLERANCE && Math.abs(y - otherY) <= SAME_SPOT_TOLERANCE;
+		}
+	}
+
+	TemplateLocationHints() {
+		this(Paths.get(HINTS_FILE));
+	}
+
+	TemplateLocationHints(Path file) {
+		this.file = file;
+		load();
+		ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "template-hints-flush");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			flusher.shutdownNow();
+			flush();
+		}));
+	}
+
+	/**
+	 * Builds the window to search first: the last known match grown by {@link #WINDOW_MARGIN}, clipped to
+	 * the region of interest.
+	 *
+	 * @param template       template path
+	 * @param imageWidth     width of the full image
+	 * @param imageHeight    height of the full image
+	 * @param roi            region of interest requested by the caller
+	 * @param templateWidth  template width
+	 * @param templateHeight template height
+	 * @return the window, or null if there is no hint or the window would be no smaller than the ROI
+	 */
+	Rect window(String template, int imageWidth, int imageHeight, Rect roi, int templateWidth, int templateHeight) {
+		Hint hint = hints.get(key(template, imageWidth, imageHeight));
+		if (hint == null) {
+			return null;
+		}
+		int x1 = Math.max(roi.x, hint.x() - templateWidth / 2 - WINDOW_MARGIN);
+		int y1 = Math.max(roi.y, hint.y() - templateHeight / 2 - WINDOW_MARGIN);
+		int x2 = Math.min(roi.x + roi.width, hint.x() + (templateWidth - templateWidth / 2) + WINDOW_MARGIN);
+		int y2 = Math.min(roi.y + roi.height, hint.y() + (templateHeight - templateHeight / 2) + WINDOW_MARGIN);
+		if (x2 - x1 < templateWidth || y2 - y1 < templateHeight) {
+			return null; // The hint lies outside the requested ROI
+		}
+		if (x2 - x1 == roi.width && y2 - y1 == roi.height) {
+			return null; // Nothing to gain over a plain ROI search
+		}
+		return new Rect(x1, y1, x2 - x1, y2 - y1);
+	}
+
+	/**
+	 * Returns the center of the last match if the hint is stable.
+	 *
+	 * @return the center, or null if there is no stable hint for this template and resolution
+	 */
+	int[] stableCenter(String template, int imageWidth, int imageHeight) {
+		Hint hint = hints.get(key(template, imageWidth, imageHeight));
+		return hint != null && hint.hits() >= STABLE_HITS ? new int[] { hint.x(), hint.y() } : null;
+	}
+
+	/**
+	 * Records the center of a match.
+	 */
+	void record(String template, int imageWidth, int imageHeight, int x, int y) {
+		String key = key(template, imageWidth, imageHeight);
+		Hint previous = hints.get(key);
+		if (previous != null && previous.isNear(x, y) && previous.hits() >= STABLE_HITS) {
+			return;
+		}
+		Hint updated = previous != null && previous.isNear(x, y) ? new Hint(x, y, previous.hits() + 1) : new Hint(x, y, 1);
+		hints.put(key, updated);
+		// Only moves and newly stable hints are worth writing
+		if (updated.hits() == 1 || updated.hits() == STABLE_HITS) {
+			dirty = true;
+		}
+	}
+
+	private static String key(String template, int imageWidth, int imageHeight) {
+		return template + "@" + imageWidth + "x" + imageHeight;
+	}
+
+	private void load() {
+		if (!Files.exists(file)) {
+			return;
+		}
+		Properties properties = new Properties();
+		try (InputStream in = Files.newInputStream(file)) {
+			properties.load(in);
+		} catch (IOException e) {
+			logger.warn("Could not read template hints from {}: {}", file, e.getMessage());
+			return;
+		}
+		for (String key : properties.stringPropertyNames()) {
+			String[] coordinates = properties.getProperty(key).split(",");
+			try {
+				int hits = coordinates.length > 2 ? Integer.parseInt(coordinates[2].trim()) : 1;
+				hints.put(key, new Hint(Integer.parseInt(coordinates[0].trim()), Integer.parseInt(coordinates[1].trim()), hits));
+			} catch (RuntimeException e) {
+				logger.debug("Ignoring malformed template hint {}", key);
+			}
+		}
+		logger.info("Loaded {} template location hints", hints.size());
+	}
+
+	/**
+	 * Writes the hints if they changed since the last flush. The file is replaced atomically so a crash
+	 * mid-write never leaves it truncated.
+	 */
+	synchronized void flush() {
+		if (!dirty) {
+			return;
+		}
+		dirty = false;
+		Properties properties = new Properties();
+		hints.forEach((key, hint) -> properties.setProperty(key, hint.x() + "," + hint.y() + "," + hint.hits()));
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			try (OutputStream out = Files.newOutputStream(tmp)) {
+				properties.store(out, "Last known template locations, key = template@WIDTHxHEIGHT, value = x,y,hits");
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			dirty = true;
+			logger.warn("Could not save template hints to {}: {}", file, e.getMessage());
+		}
+	}
+}
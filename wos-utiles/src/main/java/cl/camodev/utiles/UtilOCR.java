@@ -7,7 +7,6 @@ import java.io.IOException;
 import javax.imageio.ImageIO;
 
 import cl.camodev.wosbot.ot.DTOPoint;
-import net.sourceforge.tess4j.Tesseract;
 import net.sourceforge.tess4j.TesseractException;
 
 public class UtilOCR {
@@ -46,15 +45,8 @@ public class UtilOCR {
 		// Extraer la subimagen (la región de interés)
 		BufferedImage subImage = image.getSubimage(x, y, width, height);
 
-		// Configurar Tesseract
-		Tesseract tesseract = new Tesseract();
-		// Establece la ruta a la carpeta tessdata (asegúrate de que la ruta sea correcta)
-		tesseract.setDatapath("/lib/tesseract");
-		// Establecer el idioma; por ejemplo, "spa" para español
-		tesseract.setLanguage("eng");
-
-		// Ejecutar OCR sobre la subimagen y devolver el resultado
-		return tesseract.doOCR(subImage);
+		// Ejecutar OCR con un motor ya inicializado del pool
+		return OcrService.recognize(subImage);
 	}
 
 }
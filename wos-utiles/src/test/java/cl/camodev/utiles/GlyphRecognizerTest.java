@@ -0,0 +1,119 @@
+package cl.camodev.utiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
+
+class GlyphRecognizerTest {
+
+	// Both lines together hold every digit and the colon
+	private static final String FIRST = "01:23:45";
+	private static final String SECOND = "06:07:08";
+	private static final String THIRD = "09:59:59";
+
+	@TempDir
+	Path directory;
+
+	@BeforeAll
+	static void loadOpenCv() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	/**
+	 * Draws a timer in a fixed font, the way the game does, light on dark.
+	 */
+	private static Mat timer(String text) {
+		Mat image = new Mat(40, 200, CvType.CV_8UC1, new Scalar(20));
+		Imgproc.putText(image, text, new Point(6, 30), Imgproc.FONT_HERSHEY_SIMPLEX, 0.9, new Scalar(235), 2, Imgproc.LINE_8);
+		return image;
+	}
+
+	private static void learnAll(GlyphRecognizer recognizer, int times, String... texts) {
+		for (int i = 0; i < times; i++) {
+			for (String text : texts) {
+				Mat image = timer(text);
+				recognizer.learn(image, text);
+				image.release();
+			}
+		}
+	}
+
+	private static GlyphRecognizer.Reading read(GlyphRecognizer recognizer, String text) {
+		Mat image = timer(text);
+		try {
+			return recognizer.recognize(image);
+		} finally {
+			image.release();
+		}
+	}
+
+	@Test
+	void learnsOnlyFromReadsThatAgree() {
+		GlyphRecognizer recognizer = new GlyphRecognizer(directory.resolve("glyphs.properties"));
+		learnAll(recognizer, 2, FIRST, SECOND, THIRD);
+		assertFalse(recognizer.isReady());
+
+		learnAll(recognizer, 1, FIRST, SECOND, THIRD);
+		assertTrue(recognizer.isReady());
+		assertEquals(Duration.ofSeconds(3 * 3600 + 58 * 60 + 27), read(recognizer, "03:58:27").duration());
+	}
+
+	@Test
+	void aSingleMisreadNeverBecomesASample() {
+		GlyphRecognizer recognizer = new GlyphRecognizer(directory.resolve("glyphs.properties"));
+		// The 8 is read once as a 6, then correctly: the reads disagree, so the shape is not trusted yet
+		Mat misread = timer(SECOND);
+		recognizer.learn(misread, "06:07:06");
+		misread.release();
+		learnAll(recognizer, 3, FIRST, SECOND, THIRD);
+		assertFalse(recognizer.isReady());
+
+		learnAll(recognizer, 1, SECOND);
+		assertTrue(recognizer.isReady());
+		assertEquals("06:07:08", read(recognizer, SECOND).text());
+	}
+
+	@Test
+	void correctEvictsSamplesLearnedFromARepeatedMisread() {
+		GlyphRecognizer recognizer = new GlyphRecognizer(directory.resolve("glyphs.properties"));
+		// Tesseract consistently swaps the 3 and the 8, which is then taught three times over
+		learnAll(recognizer, 3, "01:24:56", "07:09:09");
+		Mat image = timer("03:08:00");
+		for (int i = 0; i < 3; i++) {
+			recognizer.learn(image, "08:03:00");
+		}
+		assertTrue(recognizer.isReady());
+		assertEquals("08:03:00", recognizer.recognize(image).text());
+
+		// Once checked against a correct read, both samples go and the recognizer stops answering
+		assertEquals(2, recognizer.correct(image, "03:08:00"));
+		assertFalse(recognizer.isReady());
+		assertEquals(0, recognizer.recognize(image).confidence());
+		image.release();
+	}
+
+	@Test
+	void persistsOnlyConfirmedSamples() {
+		Path file = directory.resolve("glyphs.properties");
+		GlyphRecognizer recognizer = new GlyphRecognizer(file);
+		learnAll(recognizer, 2, FIRST);
+		assertFalse(file.toFile().exists());
+
+		learnAll(recognizer, 3, FIRST, SECOND, THIRD);
+		GlyphRecognizer reloaded = new GlyphRecognizer(file);
+		assertTrue(reloaded.isReady());
+		assertEquals(Duration.ofSeconds(12 * 60 + 34), read(reloaded, "12:34").duration());
+	}
+}
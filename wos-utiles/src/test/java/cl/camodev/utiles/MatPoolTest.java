@@ -0,0 +1,84 @@
+package cl.camodev.utiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+
+class MatPoolTest {
+
+	@BeforeAll
+	static void loadOpenCv() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	/**
+	 * Runs the action on a new thread, so it starts from an empty pool, and waits for the thread to end.
+	 */
+	private static void onNewThread(Runnable action) throws Exception {
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		Thread thread = new Thread(() -> {
+			try {
+				action.run();
+			} catch (Throwable t) {
+				failure.set(t);
+			}
+		});
+		thread.start();
+		thread.join();
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+	}
+
+	@Test
+	void reusesTheMatOfTheSameShape() throws Exception {
+		onNewThread(() -> {
+			Mat first = MatPool.acquire(100, 100, CvType.CV_32FC1);
+			MatPool.recycle(first);
+			Mat second = MatPool.acquire(100, 100, CvType.CV_32FC1);
+			assertSame(first, second);
+			MatPool.recycle(second);
+		});
+	}
+
+	@Test
+	void evictsTheLeastRecentlyUsedShapeWhenTheThreadIsFull() throws Exception {
+		onNewThread(() -> {
+			// 6 MB each: the third one does not fit in the 16 MB of a thread
+			Mat old = MatPool.acquire(1024, 1536, CvType.CV_32FC1);
+			Mat recent = MatPool.acquire(1024, 1537, CvType.CV_32FC1);
+			MatPool.recycle(old);
+			MatPool.recycle(recent);
+			Mat newest = MatPool.acquire(1024, 1538, CvType.CV_32FC1);
+			MatPool.recycle(newest);
+
+			Mat again = MatPool.acquire(1024, 1537, CvType.CV_32FC1);
+			assertSame(recent, again);
+			Mat evicted = MatPool.acquire(1024, 1536, CvType.CV_32FC1);
+			assertNotSame(old, evicted);
+			assertTrue(old.empty(), "the evicted Mat is released");
+			MatPool.recycle(again);
+			MatPool.recycle(evicted);
+		});
+	}
+
+	@Test
+	void releasesTheIdleMatsOfDeadThreads() throws Exception {
+		long before = MatPool.getStats().idleBytes();
+		AtomicReference<Mat> pooled = new AtomicReference<>();
+		onNewThread(() -> {
+			pooled.set(MatPool.acquire(512, 512, CvType.CV_8UC3));
+			MatPool.recycle(pooled.get());
+		});
+		assertEquals(before, MatPool.getStats().idleBytes());
+		assertTrue(pooled.get().empty(), "the dead thread's Mat is released");
+	}
+}
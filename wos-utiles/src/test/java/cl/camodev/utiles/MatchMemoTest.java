@@ -0,0 +1,107 @@
+package cl.camodev.utiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+
+import cl.camodev.wosbot.ot.DTOImageSearchResult;
+import cl.camodev.wosbot.ot.DTOPoint;
+
+class MatchMemoTest {
+
+	@BeforeAll
+	static void loadOpenCv() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	private static Mat randomScreen(long seed) {
+		byte[] pixels = new byte[1280 * 720 * 3];
+		new Random(seed).nextBytes(pixels);
+		Mat screen = new Mat(1280, 720, CvType.CV_8UC3);
+		screen.put(0, 0, pixels);
+		return screen;
+	}
+
+	@Test
+	void identicalPixelsHashTheSame() {
+		Mat first = randomScreen(1);
+		Mat second = randomScreen(1);
+		try {
+			MatchMemo memo = new MatchMemo(8);
+			Rect roi = new Rect(13, 200, 517, 611);
+			assertEquals(memo.hashRegion(first, roi), memo.hashRegion(second, roi));
+		} finally {
+			first.release();
+			second.release();
+		}
+	}
+
+	@Test
+	void anySinglePixelChangesTheHash() {
+		Mat screen = randomScreen(2);
+		try {
+			MatchMemo memo = new MatchMemo(8);
+			Rect roi = new Rect(0, 0, 720, 1280);
+			long original = memo.hashRegion(screen, roi);
+			Random random = new Random(3);
+			for (int i = 0; i < 200; i++) {
+				int row = random.nextInt(roi.height);
+				int col = random.nextInt(roi.width);
+				double[] pixel = screen.get(row, col);
+				double[] changed = pixel.clone();
+				int channel = random.nextInt(3);
+				changed[channel] = ((int) changed[channel] + 1) & 0xFF;
+				screen.put(row, col, changed);
+				assertNotEquals(original, memo.hashRegion(screen, roi), () -> "pixel " + col + "," + row);
+				screen.put(row, col, pixel);
+			}
+			assertEquals(original, memo.hashRegion(screen, roi));
+		} finally {
+			screen.release();
+		}
+	}
+
+	@Test
+	void hashesOnlyTheRegion() {
+		Mat screen = randomScreen(4);
+		try {
+			MatchMemo memo = new MatchMemo(8);
+			Rect roi = new Rect(100, 100, 50, 50);
+			long original = memo.hashRegion(screen, roi);
+			screen.put(99, 99, 0, 0, 0);
+			screen.put(150, 150, 0, 0, 0);
+			assertEquals(original, memo.hashRegion(screen, roi));
+		} finally {
+			screen.release();
+		}
+	}
+
+	@Test
+	void returnsCopiesAndEvictsTheLeastRecentlyUsed() {
+		MatchMemo memo = new MatchMemo(2);
+		Rect roi = new Rect(0, 0, 10, 10);
+		memo.put(1, "a.png", 90, roi, new DTOImageSearchResult(true, new DTOPoint(5, 6), 95), 1000);
+		memo.put(2, "a.png", 90, roi, new DTOImageSearchResult(false, null, 40), 1000);
+
+		DTOImageSearchResult hit = memo.get(1, "a.png", 90, roi);
+		assertNotNull(hit);
+		assertEquals(5, hit.getPoint().getX());
+		assertEquals(6, hit.getPoint().getY());
+		assertNotSame(hit, memo.get(1, "a.png", 90, roi));
+
+		memo.put(3, "a.png", 90, roi, new DTOImageSearchResult(false, null, 10), 1000);
+		assertNull(memo.get(2, "a.png", 90, roi));
+		assertNotNull(memo.get(1, "a.png", 90, roi));
+		assertNull(memo.get(1, "b.png", 90, roi));
+	}
+}
@@ -0,0 +1,155 @@
+package cl.camodev.utiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class OcrDurationParserTest {
+
+	private static final long INVALID = OcrDurationParser.INVALID;
+
+	private static void assertSeconds(long expected, String text) {
+		assertEquals(expected, OcrDurationParser.parseSeconds(text), () -> "parsing \"" + text + "\"");
+	}
+
+	// Texts the callers read before the parser was shared: timers as Tesseract returns them, with the
+	// trailing newline and the labels of the regions around them
+
+	@Test
+	void readsClocksWithDays() {
+		assertSeconds(7384, "02:03:04");
+		assertSeconds(7384, "02:03:04\n");
+		assertSeconds(93784, "1d 02:03:04");
+		assertSeconds(93784, "1d02:03:04");
+		assertSeconds(93784, "1D 02:03:04");
+		assertSeconds(172799, "Upgrading 1d 23:59:59");
+	}
+
+	@Test
+	void skipsLabelsAroundTheTimer() {
+		assertSeconds(93784, "On cooldown: 1d 02:03:04");
+		assertSeconds(93784, "On cooldown:1d 02:03:04");
+		assertSeconds(727, "Training 00:12:07\n");
+		assertSeconds(600, "Lv. 5 00:10:00");
+	}
+
+	@Test
+	void correctsLettersReadAsDigits() {
+		assertSeconds(9015, "O2:3O:l5");
+		assertSeconds(1, "OO:OO:OI");
+		assertSeconds(3725, "Ol:O2:OS");
+		assertSeconds(28800, "O8:OO:OO");
+		assertSeconds(82800, "Z3:OO:OO");
+		assertSeconds(2880, "OO:4B:OO");
+		// Found by the fuzz test: the l was skipped as part of the unit word
+		assertSeconds(2125259, "Next free: 24dl4:20:59\n");
+	}
+
+	@Test
+	void leavesWordsAlone() {
+		assertSeconds(INVALID, "Idle");
+		assertSeconds(INVALID, "Completed");
+		assertSeconds(INVALID, "5 Training");
+		assertSeconds(INVALID, "");
+		assertSeconds(INVALID, null);
+	}
+
+	@Test
+	void readsMinutesAndSecondsClocks() {
+		assertSeconds(184, "03:04");
+		assertSeconds(62, "1:2");
+	}
+
+	@Test
+	void readsUnitForms() {
+		assertSeconds(9000, "2h 30m");
+		assertSeconds(2710, "45m 10s");
+		assertSeconds(259200, "3 days");
+		assertSeconds(600, "10 min");
+		assertSeconds(104400, "1d 5h");
+		assertSeconds(300, "5m");
+	}
+
+	@Test
+	void stopsAtABareNumberAfterUnits() {
+		assertSeconds(18000, "5h 30");
+	}
+
+	@Test
+	void rejectsOutOfRangeAndOverlongClocks() {
+		assertSeconds(INVALID, "12:75:00");
+		assertSeconds(INVALID, "00:00:60");
+		assertSeconds(INVALID, "00:00:00:00");
+		assertSeconds(INVALID, "01:05:89");
+		assertSeconds(INVALID, "1234567h");
+	}
+
+	@Test
+	void parseAgreesWithParseSeconds() {
+		assertEquals(Duration.ofHours(26).plusMinutes(3).plusSeconds(4), OcrDurationParser.parse("1d 02:03:04"));
+		assertNull(OcrDurationParser.parse("Idle"));
+		assertNull(OcrDurationParser.parse(null));
+	}
+
+	// Random timers, formatted the way the game draws them and damaged the way Tesseract damages them, must
+	// read back as the same duration
+
+	private static final String[] LABELS = { "", "On cooldown: ", "Training ", "Next free: ", "Upgrading\n" };
+
+	@Test
+	void fuzzRoundTripsFormattedTimers() {
+		Random random = new Random(20261018L);
+		for (int i = 0; i < 20000; i++) {
+			long days = random.nextInt(4) == 0 ? 1 + random.nextInt(30) : 0;
+			long hours = random.nextInt(24);
+			long minutes = random.nextInt(60);
+			long seconds = random.nextInt(60);
+
+			String clock = String.format("%02d:%02d:%02d", hours, minutes, seconds);
+			if (random.nextBoolean()) {
+				clock = confuse(clock, random);
+			}
+			String dayPart = days > 0 ? days + "d" + (random.nextBoolean() ? " " : "") : "";
+			String text = LABELS[random.nextInt(LABELS.length)] + dayPart + clock + (random.nextBoolean() ? "\n" : "");
+
+			assertSeconds(((days * 24 + hours) * 60 + minutes) * 60 + seconds, text);
+		}
+	}
+
+	@Test
+	void fuzzNeverFailsOnNoise() {
+		String alphabet = "0123456789:dhms OolISBZ|\nabcxyz/.-";
+		Random random = new Random(42L);
+		for (int i = 0; i < 50000; i++) {
+			StringBuilder text = new StringBuilder();
+			int length = random.nextInt(24);
+			for (int j = 0; j < length; j++) {
+				text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			long seconds = OcrDurationParser.parseSeconds(text);
+			assertTrue(seconds == INVALID || seconds >= 0, () -> "parsing \"" + text + "\" gave " + seconds);
+		}
+	}
+
+	private static String confuse(String clock, Random random) {
+		StringBuilder confused = new StringBuilder(clock);
+		for (int i = 0; i < confused.length(); i++) {
+			char substitute = switch (confused.charAt(i)) {
+				case '0' -> 'O';
+				case '1' -> 'l';
+				case '5' -> 'S';
+				case '8' -> 'B';
+				default -> 0;
+			};
+			if (substitute != 0 && random.nextInt(3) == 0) {
+				confused.setCharAt(i, substitute);
+			}
+		}
+		return confused.toString();
+	}
+}
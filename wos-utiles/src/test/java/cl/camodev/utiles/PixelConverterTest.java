@@ -0,0 +1,184 @@
+package cl.camodev.utiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
+
+import cl.camodev.utiles.PixelConverter.PixelFormat;
+import cl.camodev.utiles.PixelConverter.PixelLayout;
+
+/**
+ * Checks every framebuffer layout against a per-pixel reference: the channels unpacked by hand, and OpenCV's
+ * {@code COLOR_BGR2GRAY} applied to them for the gray image.
+ */
+class PixelConverterTest {
+
+	private static final int WIDTH = 97;
+	private static final int HEIGHT = 61;
+
+	private static final PixelLayout RGBA = new PixelLayout(32, 0, 8, 16, 24, 8);
+	private static final PixelLayout RGBX = new PixelLayout(32, 0, 8, 16, 24, 0);
+	private static final PixelLayout BGRA = new PixelLayout(32, 16, 8, 0, 24, 8);
+	private static final PixelLayout RGB_565 = new PixelLayout(16, 11, 5, 0, -1, 0);
+	// Layouts without a dedicated path: packed RGB and ARGB
+	private static final PixelLayout RGB_888 = new PixelLayout(24, 0, 8, 16, -1, 0);
+	private static final PixelLayout ARGB = new PixelLayout(32, 8, 16, 24, 0, 8);
+
+	@BeforeAll
+	static void loadOpenCv() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	private static byte[] randomFrame(PixelLayout layout, long seed) {
+		byte[] data = new byte[WIDTH * HEIGHT * layout.bpp() / 8];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+
+	/**
+	 * Unpacks the channels one pixel at a time, the straightforward way.
+	 */
+	private static byte[] referenceBgr(byte[] data, PixelLayout layout) {
+		byte[] bgr = new byte[WIDTH * HEIGHT * 3];
+		int bytesPerPixel = layout.bpp() / 8;
+		for (int i = 0; i < WIDTH * HEIGHT; i++) {
+			int src = i * bytesPerPixel;
+			if (layout.bpp() == 16) {
+				int value = (data[src] & 0xFF) | (data[src + 1] & 0xFF) << 8;
+				// OpenCV expands 5-6-5 by shifting, without replicating the high bits
+				bgr[i * 3] = (byte) ((value & 0x1F) << 3);
+				bgr[i * 3 + 1] = (byte) (((value >> 5) & 0x3F) << 2);
+				bgr[i * 3 + 2] = (byte) (((value >> 11) & 0x1F) << 3);
+			} else {
+				bgr[i * 3] = data[src + layout.blueOffset() / 8];
+				bgr[i * 3 + 1] = data[src + layout.greenOffset() / 8];
+				bgr[i * 3 + 2] = data[src + layout.redOffset() / 8];
+			}
+		}
+		return bgr;
+	}
+
+	private static byte[] referenceGray(byte[] bgr) {
+		Mat color = new Mat(HEIGHT, WIDTH, CvType.CV_8UC3);
+		Mat gray = new Mat();
+		try {
+			color.put(0, 0, bgr);
+			Imgproc.cvtColor(color, gray, Imgproc.COLOR_BGR2GRAY);
+			return bytes(gray);
+		} finally {
+			color.release();
+			gray.release();
+		}
+	}
+
+	private static byte[] bytes(Mat mat) {
+		byte[] bytes = new byte[(int) (mat.total() * mat.elemSize())];
+		mat.get(0, 0, bytes);
+		return bytes;
+	}
+
+	/**
+	 * @return the largest difference between the converter output and the reference, for both images
+	 */
+	private static int[] compare(PixelLayout layout, long seed) {
+		byte[] data = randomFrame(layout, seed);
+		byte[] expectedBgr = referenceBgr(data, layout);
+		byte[] expectedGray = referenceGray(expectedBgr);
+
+		Mat bgr = new Mat();
+		Mat gray = new Mat();
+		try {
+			PixelConverter.toBgr(data, WIDTH, HEIGHT, layout, bgr);
+			PixelConverter.toGray(data, WIDTH, HEIGHT, layout, gray);
+			assertEquals(CvType.CV_8UC3, bgr.type());
+			assertEquals(CvType.CV_8UC1, gray.type());
+			return new int[] { maxDifference(expectedBgr, bytes(bgr)), maxDifference(expectedGray, bytes(gray)) };
+		} finally {
+			bgr.release();
+			gray.release();
+		}
+	}
+
+	private static int maxDifference(byte[] expected, byte[] actual) {
+		assertEquals(expected.length, actual.length);
+		int max = 0;
+		for (int i = 0; i < expected.length; i++) {
+			max = Math.max(max, Math.abs((expected[i] & 0xFF) - (actual[i] & 0xFF)));
+		}
+		return max;
+	}
+
+	@Test
+	void detectsTheLayouts() {
+		assertEquals(PixelFormat.RGBA_8888, RGBA.format());
+		assertEquals(PixelFormat.RGBX_8888, RGBX.format());
+		assertEquals(PixelFormat.BGRA_8888, BGRA.format());
+		assertEquals(PixelFormat.RGB_565, RGB_565.format());
+		assertEquals(PixelFormat.GENERIC, RGB_888.format());
+		assertEquals(PixelFormat.GENERIC, ARGB.format());
+	}
+
+	@Test
+	void convertsRgba() {
+		assertEquals(0, compare(RGBA, 1)[0]);
+		assertEquals(0, compare(RGBA, 1)[1]);
+	}
+
+	@Test
+	void convertsRgbx() {
+		assertEquals(0, compare(RGBX, 2)[0]);
+		assertEquals(0, compare(RGBX, 2)[1]);
+	}
+
+	@Test
+	void convertsBgra() {
+		assertEquals(0, compare(BGRA, 3)[0]);
+		assertEquals(0, compare(BGRA, 3)[1]);
+	}
+
+	@Test
+	void convertsRgb565() {
+		assertEquals(0, compare(RGB_565, 4)[0]);
+		assertEquals(0, compare(RGB_565, 4)[1]);
+	}
+
+	@Test
+	void convertsGenericLayoutsLikeOpenCv() {
+		assertEquals(0, compare(RGB_888, 5)[0]);
+		assertEquals(0, compare(RGB_888, 5)[1]);
+		assertEquals(0, compare(ARGB, 6)[0]);
+		assertEquals(0, compare(ARGB, 6)[1]);
+	}
+
+	@Test
+	void genericGrayMatchesOpenCvForEveryColor() {
+		// Every 24-bit color once, through the GENERIC kernel and through cvtColor
+		int side = 4096;
+		byte[] data = new byte[side * side * 3];
+		for (int color = 0, i = 0; color < side * side; color++, i += 3) {
+			data[i] = (byte) (color >> 16);
+			data[i + 1] = (byte) (color >> 8);
+			data[i + 2] = (byte) color;
+		}
+		Mat gray = new Mat();
+		Mat color = new Mat(side, side, CvType.CV_8UC3);
+		Mat expected = new Mat();
+		try {
+			PixelConverter.toGray(data, side, side, RGB_888, gray);
+			// RGB_888 stores red first: as a BGR Mat its red and blue are swapped
+			color.put(0, 0, data);
+			Imgproc.cvtColor(color, expected, Imgproc.COLOR_RGB2GRAY);
+			assertEquals(0, maxDifference(bytes(expected), bytes(gray)));
+		} finally {
+			gray.release();
+			color.release();
+			expected.release();
+		}
+	}
+}
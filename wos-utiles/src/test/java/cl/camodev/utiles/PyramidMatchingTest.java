@@ -0,0 +1,111 @@
+package cl.camodev.utiles;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgcodecs.Imgcodecs;
+import org.opencv.imgproc.Imgproc;
+
+import cl.camodev.wosbot.ot.DTOImageSearchResult;
+
+/**
+ * Places every bundled template that is large enough for the pyramid into synthetic screens and checks that
+ * the coarse-to-fine search lands where the full resolution search does.
+ */
+class PyramidMatchingTest {
+
+	// The templates are bundled with the service module, next to this one
+	private static final Path TEMPLATES = Paths.get("..", "wos-serv", "src", "main", "resources", "templates");
+	private static final double THRESHOLD = 90;
+
+	@BeforeAll
+	static void loadOpenCv() {
+		nu.pattern.OpenCV.loadLocally();
+	}
+
+	/**
+	 * Smooth noise, closer to a game screen than white noise and unlike any template.
+	 */
+	private static Mat background(Random random) {
+		Mat noise = new Mat(1280, 720, CvType.CV_8UC3);
+		Core.randu(noise, 0, 256);
+		Mat screen = new Mat();
+		Imgproc.GaussianBlur(noise, screen, new Size(9, 9), 0);
+		noise.release();
+		Core.add(screen, new Scalar(random.nextInt(64), random.nextInt(64), random.nextInt(64)), screen);
+		return screen;
+	}
+
+	@Test
+	void pyramidAgreesWithFullResolution() throws IOException {
+		assumeTrue(Files.isDirectory(TEMPLATES), "bundled templates not found");
+		List<Path> pngs;
+		try (Stream<Path> files = Files.walk(TEMPLATES)) {
+			pngs = files.filter(file -> file.toString().endsWith(".png")).sorted().toList();
+		}
+
+		Random random = new Random(14L);
+		List<String> mismatches = new ArrayList<>();
+		int compared = 0;
+		for (Path png : pngs) {
+			Mat bgr = Imgcodecs.imread(png.toString(), Imgcodecs.IMREAD_COLOR);
+			if (bgr.empty() || bgr.cols() > 600 || bgr.rows() > 1100) {
+				bgr.release();
+				continue;
+			}
+			CachedTemplate template = new CachedTemplate(png.toString(), bgr);
+			int factor = template.getDefaultPyramidFactor();
+			if (factor > 1) {
+				// A few placements per template, so positions that are not multiples of the factor are covered
+				for (int i = 0; i < 3; i++) {
+					Mat screen = background(random);
+					int x = random.nextInt(screen.cols() - template.getWidth());
+					int y = random.nextInt(screen.rows() - template.getHeight());
+					Mat target = screen.submat(new Rect(x, y, template.getWidth(), template.getHeight()));
+					template.getBgr().copyTo(target);
+					target.release();
+
+					// A search area around the template, as tasks use, keeps the full resolution pass affordable
+					int left = Math.max(0, x - random.nextInt(160));
+					int top = Math.max(0, y - random.nextInt(160));
+					int right = Math.min(screen.cols(), x + template.getWidth() + random.nextInt(160));
+					int bottom = Math.min(screen.rows(), y + template.getHeight() + random.nextInt(160));
+					Rect roi = new Rect(left, top, right - left, bottom - top);
+					DTOImageSearchResult full = ImageSearchUtil.matchBest(screen, roi, template, THRESHOLD);
+					DTOImageSearchResult pyramid = ImageSearchUtil.matchBestPyramid(screen, roi, template, factor, THRESHOLD);
+					screen.release();
+					compared++;
+
+					if (!full.isFound() || !pyramid.isFound()
+							|| Math.abs(full.getPoint().getX() - pyramid.getPoint().getX()) > 1
+							|| Math.abs(full.getPoint().getY() - pyramid.getPoint().getY()) > 1) {
+						mismatches.add(TEMPLATES.relativize(png) + " at " + x + "," + y + " (factor " + factor + "): full " + full.getPoint()
+								+ " " + full.getMatchPercentage() + "%, pyramid " + pyramid.getPoint() + " " + pyramid.getMatchPercentage() + "%");
+					}
+				}
+			}
+			template.release();
+		}
+
+		assertTrue(compared > 0, "no template large enough for the pyramid");
+		int searches = compared;
+		assertTrue(mismatches.isEmpty(), () -> searches + " searches, " + mismatches.size() + " disagree:\n" + String.join("\n", mismatches));
+	}
+}